@@ -0,0 +1,81 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.TranslateTextDtoRequest;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.yandextranslate.YandexTranslateTranslateDtoRequest;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslateDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslationDto;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Jackson (de)serialization of the translate request DTO and of Yandex Translate API translate DTOs
+ * with a batch of {@code words} words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoSerializationBenchmark {
+
+  @Param({"10", "100"})
+  private int words;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private String translateTextRequestJson;
+
+  private YandexTranslateTranslateDtoRequest yandexTranslateRequest;
+
+  private String yandexTranslateResponseJson;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    final var texts = new ArrayList<String>(words);
+    final var translations = new ArrayList<YandexTranslateTranslationDto>(words);
+
+    for (var i = 0; i < words; ++i) {
+      texts.add("привет" + i);
+      translations.add(new YandexTranslateTranslationDto("hello" + i));
+    }
+
+    translateTextRequestJson =
+        objectMapper.writeValueAsString(
+            new TranslateTextDtoRequest(String.join(" ", texts), "ru", "en"));
+    yandexTranslateRequest = new YandexTranslateTranslateDtoRequest("ru", "en", texts);
+    yandexTranslateResponseJson =
+        objectMapper.writeValueAsString(
+            new YandexTranslateTranslateDtoResponse(translations, null));
+  }
+
+  @Benchmark
+  public TranslateTextDtoRequest readTranslateTextRequest() throws JsonProcessingException {
+    return objectMapper.readValue(translateTextRequestJson, TranslateTextDtoRequest.class);
+  }
+
+  @Benchmark
+  public byte[] writeYandexTranslateRequest() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(yandexTranslateRequest);
+  }
+
+  @Benchmark
+  public YandexTranslateTranslateDtoResponse readYandexTranslateResponse()
+      throws JsonProcessingException {
+    return objectMapper.readValue(
+        yandexTranslateResponseJson, YandexTranslateTranslateDtoResponse.class);
+  }
+}
@@ -0,0 +1,88 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Splitting text of a translate request into words and joining their translations back with {@link
+ * TokenizedText}, compared to regex split and joining with a single space that were used before it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizationBenchmark {
+
+  @Param({"10", "1000"})
+  private int words;
+
+  private String text;
+
+  private TokenizedText tokenizedText;
+
+  private String[] translatedWords;
+
+  @Setup
+  public void setUp() {
+    final var textBuilder = new StringBuilder("  ");
+    translatedWords = new String[words];
+
+    for (var i = 0; i < words; ++i) {
+      textBuilder.append(i % 2 == 0 ? "привет" : "всем").append(i % 10 == 0 ? ",   " : " ");
+      translatedWords[i] = i % 2 == 0 ? "hello" : "everyone";
+    }
+
+    text = textBuilder.toString();
+    tokenizedText = TokenizedText.tokenize(text);
+  }
+
+  @Benchmark
+  public List<String> tokenize() {
+    return TokenizedText.tokenize(text).getWords();
+  }
+
+  @Benchmark
+  public String join() {
+    return tokenizedText.join(translatedWords);
+  }
+
+  @Benchmark
+  public List<String> regexSplit() {
+    return Arrays.asList(text.trim().split("\\s+"));
+  }
+
+  @Benchmark
+  public String joinWithSpace() {
+    return String.join(" ", translatedWords);
+  }
+
+  // a translate request does both, so a larger join is paid off by a smaller split
+  @Benchmark
+  public void tokenizeAndJoin(final Blackhole blackhole) {
+    final var tokenized = TokenizedText.tokenize(text);
+
+    blackhole.consume(tokenized.getWords());
+    blackhole.consume(tokenized.join(translatedWords));
+  }
+
+  @Benchmark
+  public void regexSplitAndJoinWithSpace(final Blackhole blackhole) {
+    blackhole.consume(Arrays.asList(text.trim().split("\\s+")));
+    blackhole.consume(String.join(" ", translatedWords));
+  }
+}
@@ -0,0 +1,244 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.AvailableLanguagesCache;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.WordTranslationCache;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.WordTranslationKey;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.client.YandexTranslateApiClient;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.TranslateTextDtoRequest;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.yandextranslate.YandexTranslateTranslateDtoRequest;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslateTextDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateLanguageDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateListLanguagesResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslateDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslationDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.WordTranslationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Whole {@link TranslationService#translateText} path against a stubbed {@link RestTemplate} that
+ * answers after {@code upstreamLatencyMillis}. DB is stubbed out too.
+ *
+ * <p>With {@code cacheWords == false} every word goes to the stub, so the path includes batching,
+ * upstream call wrappers and executors; otherwise all words are found in {@link
+ * WordTranslationCache} after the first invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslateTextBenchmark {
+
+  private static final String YANDEX_TRANSLATE_API_URL = "http://yandex-translate-api.stub";
+
+  private static final Clock CLOCK = Clock.systemUTC();
+
+  @Param({"0", "5"})
+  private long upstreamLatencyMillis;
+
+  @Param({"false", "true"})
+  private boolean cacheWords;
+
+  @Param({"10", "300"})
+  private int words;
+
+  private ExecutorService yandexTranslateApiTranslateExecutorService;
+  private ExecutorService translationMemoryWriterExecutorService;
+  private ExecutorService translationStreamExecutorService;
+
+  private TranslationWriteBehindQueue translationWriteBehindQueue;
+
+  private TranslationService translationService;
+
+  private TranslateTextDtoRequest request;
+
+  @Setup
+  public void setUp() throws URISyntaxException {
+    final var meterRegistry = new SimpleMeterRegistry();
+
+    yandexTranslateApiTranslateExecutorService = Executors.newVirtualThreadPerTaskExecutor();
+    translationMemoryWriterExecutorService = Executors.newSingleThreadExecutor();
+    translationStreamExecutorService = Executors.newVirtualThreadPerTaskExecutor();
+    translationWriteBehindQueue = new NoOpTranslationWriteBehindQueue(meterRegistry);
+
+    final var yandexTranslateApiClient =
+        new YandexTranslateApiClient(
+            YANDEX_TRANSLATE_API_URL, "stub", new StubRestTemplate(upstreamLatencyMillis));
+
+    translationService =
+        new TranslationService(
+            CLOCK,
+            new UuidV7Generator(CLOCK),
+            yandexTranslateApiTranslateExecutorService,
+            new UpstreamConcurrencyLimiter(10, 100, 1000, 16, Duration.ofSeconds(2), 0.9),
+            new UpstreamHedger(
+                false, Duration.ZERO, yandexTranslateApiTranslateExecutorService, meterRegistry),
+            new UpstreamCircuitBreaker(CLOCK, 20, 10, 0.5, Duration.ofSeconds(10), 3),
+            new UpstreamQuotaLimiter(1e9, 1e12, Duration.ZERO, meterRegistry),
+            Duration.ofSeconds(15),
+            yandexTranslateApiClient,
+            new AvailableLanguagesCache(yandexTranslateApiClient),
+            translationWriteBehindQueue,
+            new TranslationBatchPlanner(100, 10000),
+            cacheWords
+                ? new WordTranslationCache(5_000_000, Duration.ofHours(1))
+                : new NoOpWordTranslationCache(),
+            new SingleFlight<>(),
+            new NoOpWordTranslationRepository(),
+            translationMemoryWriterExecutorService,
+            translationStreamExecutorService,
+            100,
+            4,
+            new TranslationRequestMeters(meterRegistry, 20),
+            meterRegistry);
+
+    final var text = new StringBuilder();
+
+    for (var i = 0; i < words; ++i) {
+      text.append("слово").append(i).append(' ');
+    }
+
+    request = new TranslateTextDtoRequest(text.toString(), "ru", "en");
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    translationWriteBehindQueue.close();
+    yandexTranslateApiTranslateExecutorService.shutdownNow();
+    translationMemoryWriterExecutorService.shutdownNow();
+    translationStreamExecutorService.shutdownNow();
+  }
+
+  @Benchmark
+  public TranslateTextDtoResponse translateText() {
+    return translationService.translateText(request, "127.0.0.1");
+  }
+
+  private static final class StubRestTemplate extends RestTemplate {
+
+    private static final YandexTranslateListLanguagesResponse LANGUAGES =
+        new YandexTranslateListLanguagesResponse(
+            List.of(
+                new YandexTranslateLanguageDto("ru", "русский"),
+                new YandexTranslateLanguageDto("en", "English")),
+            null);
+
+    private final long latencyMillis;
+
+    private StubRestTemplate(final long latencyMillis) {
+      this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> postForEntity(
+        final URI url, final Object request, final Class<T> responseType) {
+      if (responseType == YandexTranslateListLanguagesResponse.class) {
+        return (ResponseEntity<T>) ResponseEntity.ok(LANGUAGES);
+      }
+
+      if (latencyMillis > 0) {
+        try {
+          Thread.sleep(latencyMillis);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      final var texts =
+          ((HttpEntity<YandexTranslateTranslateDtoRequest>) request).getBody().texts();
+      final var translations = new ArrayList<YandexTranslateTranslationDto>(texts.size());
+
+      for (final var text : texts) {
+        translations.add(new YandexTranslateTranslationDto(text));
+      }
+
+      return (ResponseEntity<T>)
+          ResponseEntity.ok(new YandexTranslateTranslateDtoResponse(translations, null));
+    }
+  }
+
+  private static final class NoOpWordTranslationCache extends WordTranslationCache {
+
+    private NoOpWordTranslationCache() {
+      super(0, Duration.ZERO);
+    }
+
+    @Override
+    public String get(final WordTranslationKey key) {
+      return null;
+    }
+
+    @Override
+    public void put(final WordTranslationKey key, final String translation) {}
+  }
+
+  private static final class NoOpWordTranslationRepository extends WordTranslationRepository {
+
+    private NoOpWordTranslationRepository() {
+      super(null);
+    }
+
+    @Override
+    public Map<String, String> findTranslations(
+        final String sourceLanguage, final String targetLanguage, final Collection<String> words) {
+      return Map.of();
+    }
+
+    @Override
+    public void saveTranslations(
+        final String sourceLanguage,
+        final String targetLanguage,
+        final Map<String, String> translations,
+        final LocalDateTime createdAt) {}
+  }
+
+  private static final class NoOpTranslationWriteBehindQueue extends TranslationWriteBehindQueue {
+
+    private NoOpTranslationWriteBehindQueue(final SimpleMeterRegistry meterRegistry) {
+      super(
+          1,
+          1,
+          Duration.ofSeconds(1),
+          Duration.ZERO,
+          Duration.ofSeconds(1),
+          null,
+          null,
+          meterRegistry);
+    }
+
+    @Override
+    public boolean enqueue(final Translation translation) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.actuator;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.UpstreamCircuitBreaker;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.UpstreamConcurrencyLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/** {@code /actuator/upstream} shows how Yandex Translate API calls are limited right now. */
+@Component
+@Endpoint(id = "upstream")
+@RequiredArgsConstructor
+public class UpstreamEndpoint {
+
+  private final UpstreamConcurrencyLimiter upstreamConcurrencyLimiter;
+
+  private final UpstreamCircuitBreaker upstreamCircuitBreaker;
+
+  @ReadOperation
+  public UpstreamState upstream() {
+    return new UpstreamState(
+        new ConcurrencyLimitState(
+            upstreamConcurrencyLimiter.getLimit(), upstreamConcurrencyLimiter.getInFlight()),
+        new CircuitBreakerState(
+            upstreamCircuitBreaker.getState(), upstreamCircuitBreaker.getFailureRate()));
+  }
+
+  public record UpstreamState(
+      ConcurrencyLimitState concurrencyLimit, CircuitBreakerState circuitBreaker) {}
+
+  public record ConcurrencyLimitState(int limit, int inFlight) {}
+
+  public record CircuitBreakerState(UpstreamCircuitBreaker.State state, double failureRate) {}
+}
@@ -0,0 +1,85 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.client.YandexTranslateApiClient;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.AvailableLanguageDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.YandexApiException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory copy of languages available for translation in Yandex Translate API.
+ *
+ * <p>Languages are loaded at application start and then refreshed in the background. Readers always
+ * get the last successfully loaded languages, even if the current refresh fails.
+ */
+@Component
+@Slf4j
+public class AvailableLanguagesCache {
+
+  private final YandexTranslateApiClient yandexTranslateApiClient;
+
+  private volatile AvailableLanguages availableLanguages;
+
+  public AvailableLanguagesCache(final YandexTranslateApiClient yandexTranslateApiClient) {
+    this.yandexTranslateApiClient = yandexTranslateApiClient;
+  }
+
+  /**
+   * @throws YandexApiException if languages were never loaded and loading them failed
+   */
+  public List<AvailableLanguageDto> getAvailableLanguages() {
+    return getOrLoad().languages();
+  }
+
+  /**
+   * @throws YandexApiException if languages were never loaded and loading them failed
+   */
+  public boolean isAvailable(final String languageCode) {
+    return getOrLoad().codes().contains(languageCode);
+  }
+
+  // runs right after application start and then periodically
+  @Scheduled(fixedDelayString = "${translator.available-languages.refresh-interval}")
+  public void refresh() {
+    try {
+      load();
+    } catch (final RuntimeException e) {
+      // stale languages are still served until the next successful refresh
+      log.warn("failed to refresh available languages", e);
+    }
+  }
+
+  private AvailableLanguages getOrLoad() {
+    final var languages = availableLanguages;
+
+    return languages != null ? languages : loadIfAbsent();
+  }
+
+  // prevents concurrent requests from querying Yandex Translate API at once
+  private synchronized AvailableLanguages loadIfAbsent() {
+    return availableLanguages != null ? availableLanguages : load();
+  }
+
+  private AvailableLanguages load() {
+    final var languages =
+        yandexTranslateApiClient.listLanguages().stream()
+            .map(language -> new AvailableLanguageDto(language.code(), language.name()))
+            .toList();
+    final var loaded =
+        new AvailableLanguages(
+            languages,
+            languages.stream().map(AvailableLanguageDto::code).collect(Collectors.toSet()));
+
+    availableLanguages = loaded;
+
+    log.info("loaded {} available languages", languages.size());
+
+    return loaded;
+  }
+
+  private record AvailableLanguages(List<AvailableLanguageDto> languages, Set<String> codes) {}
+}
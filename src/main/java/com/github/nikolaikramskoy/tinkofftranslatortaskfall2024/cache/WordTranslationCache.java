@@ -0,0 +1,52 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+
+/**
+ * Bounded in-memory cache of single word translations.
+ *
+ * <p>Weight of an entry is the number of characters in the word and its translation, so {@code
+ * maximumWeight} roughly limits memory occupied by cached strings. Caffeine evicts entries using
+ * W-TinyLFU policy, so frequently translated words survive bursts of rare ones.
+ */
+public class WordTranslationCache {
+
+  private final Cache<WordTranslationKey, String> cache;
+
+  public WordTranslationCache(final long maximumWeight, final Duration expireAfterWrite) {
+    if (maximumWeight < 0) {
+      throw new IllegalArgumentException("maximumWeight < 0");
+    }
+    if (expireAfterWrite == null || expireAfterWrite.isNegative()) {
+      throw new IllegalArgumentException(
+          "expireAfterWrite == null || expireAfterWrite.isNegative()");
+    }
+
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maximumWeight)
+            .<WordTranslationKey, String>weigher(
+                (key, translation) -> key.word().length() + translation.length())
+            .expireAfterWrite(expireAfterWrite)
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * @return cached translation or {@code null} if it's absent
+   */
+  public String get(final WordTranslationKey key) {
+    return cache.getIfPresent(key);
+  }
+
+  public void put(final WordTranslationKey key, final String translation) {
+    cache.put(key, translation);
+  }
+
+  /** Underlying cache; used to bind hit, miss and eviction metrics. */
+  public Cache<WordTranslationKey, String> getNativeCache() {
+    return cache;
+  }
+}
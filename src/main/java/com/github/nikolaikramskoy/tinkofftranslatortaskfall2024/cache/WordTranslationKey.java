@@ -0,0 +1,3 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache;
+
+public record WordTranslationKey(String sourceLanguage, String targetLanguage, String word) {}
@@ -0,0 +1,110 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.client;
+
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.EmptyDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.yandextranslate.YandexTranslateTranslateDtoRequest;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateLanguageDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateListLanguagesResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslateDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslationDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.YandexApiException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+@Component
+@Slf4j
+public class YandexTranslateApiClient {
+
+  private final URI yandexTranslateApiListLanguagesUri;
+  private final URI yandexTranslateApiTranslateUri;
+
+  private final String yandexApiAuthorizationHeaderValue;
+
+  private final RestTemplate restTemplate;
+
+  public YandexTranslateApiClient(
+      final String yandexTranslateApiUrl,
+      final String yandexApiKey,
+      final RestTemplate restTemplate)
+      throws URISyntaxException {
+    this.yandexTranslateApiListLanguagesUri = new URI(yandexTranslateApiUrl + "/languages");
+    this.yandexTranslateApiTranslateUri = new URI(yandexTranslateApiUrl + "/translate");
+    this.yandexApiAuthorizationHeaderValue = "Api-Key " + yandexApiKey;
+    this.restTemplate = restTemplate;
+  }
+
+  /**
+   * Fetches languages available for translation.
+   *
+   * @throws YandexApiException in case of 4xx or 5xx HTTP status codes from Yandex Translate API
+   */
+  public List<YandexTranslateLanguageDto> listLanguages() {
+    log.debug("query Yandex Translate API for available languages");
+
+    // https://yandex.cloud/ru/docs/translate/api-ref/Translation/listLanguages
+    final var response =
+        restTemplate.postForEntity(
+            yandexTranslateApiListLanguagesUri,
+            new HttpEntity<>(new EmptyDto(), createBasicHttpHeadersForYandexApi()),
+            YandexTranslateListLanguagesResponse.class);
+
+    if (!response.getStatusCode().isSameCodeAs(HttpStatus.OK)) {
+      throw new YandexApiException(response.getStatusCode(), response.getBody().message());
+    }
+
+    return response.getBody().languages();
+  }
+
+  /**
+   * Translates every element of {@code texts} independently.
+   *
+   * @return translations in the same order as {@code texts}
+   * @throws YandexApiException in case of 4xx or 5xx HTTP status codes from Yandex Translate API
+   */
+  public List<String> translate(
+      final String sourceLanguage, final String targetLanguage, final List<String> texts) {
+    // https://yandex.cloud/ru/docs/translate/api-ref/Translation/translate
+    final var response =
+        restTemplate.postForEntity(
+            yandexTranslateApiTranslateUri,
+            new HttpEntity<>(
+                new YandexTranslateTranslateDtoRequest(sourceLanguage, targetLanguage, texts),
+                createBasicHttpHeadersForYandexApi()),
+            YandexTranslateTranslateDtoResponse.class);
+
+    if (!response.getStatusCode().isSameCodeAs(HttpStatus.OK)) {
+      throw new YandexApiException(response.getStatusCode(), response.getBody().message());
+    }
+
+    final var translations = response.getBody().translations();
+
+    if (translations == null || translations.size() != texts.size()) {
+      throw new YandexApiException(
+          HttpStatus.BAD_GATEWAY, "Unexpected number of translations from Yandex Translate API");
+    }
+
+    return translations.stream().map(YandexTranslateTranslationDto::text).toList();
+  }
+
+  private HttpHeaders createBasicHttpHeadersForYandexApi() {
+    final var headers = new HttpHeaders();
+
+    headers.setAcceptCharset(Collections.singletonList(StandardCharsets.UTF_8));
+    headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+    headers.set(AUTHORIZATION, yandexApiAuthorizationHeaderValue);
+    headers.setContentType(MediaType.APPLICATION_JSON);
+
+    return headers;
+  }
+}
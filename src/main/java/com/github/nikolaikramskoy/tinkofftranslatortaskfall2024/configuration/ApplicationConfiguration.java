@@ -1,15 +1,54 @@
 package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.configuration;
 
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.WordTranslationCache;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.WordTranslationKey;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationPartitionRepository;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationRepository;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.ClientRateLimiter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.ExpiredPartitionAction;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.SingleFlight;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationBatchPlanner;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationPartitionMaintainer;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationRequestMeters;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationWriteBehindQueue;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.UpstreamCircuitBreaker;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.UpstreamConcurrencyLimiter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.UpstreamHedger;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.UpstreamQuotaLimiter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.UuidV7Generator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
+@EnableScheduling
 public class ApplicationConfiguration {
 
   @Bean
@@ -18,8 +57,216 @@ public class ApplicationConfiguration {
   }
 
   @Bean
-  public ExecutorService yandexTranslateApiTranslateExecutorService() {
-    return Executors.newFixedThreadPool(10);
+  public UuidV7Generator uuidV7Generator(final Clock clock) {
+    return new UuidV7Generator(clock);
+  }
+
+  @Bean
+  public ExecutorService yandexTranslateApiTranslateExecutorService(
+      @Value("${translator.yandex-translate-api.executor.mode}") final ExecutorMode mode,
+      @Value("${translator.yandex-translate-api.executor.platform-pool-size}")
+          final int platformPoolSize,
+      final MeterRegistry meterRegistry) {
+    // blocking RestTemplate calls are cheap on virtual threads, so the number of
+    // in-flight calls is limited only by UpstreamConcurrencyLimiter
+    final var executorService =
+        switch (mode) {
+          case PLATFORM -> Executors.newFixedThreadPool(platformPoolSize);
+          case VIRTUAL ->
+              Executors.newThreadPerTaskExecutor(
+                  Thread.ofVirtual().name("yandex-translate-api-", 0).factory());
+        };
+
+    // queue and active threads are published only for PLATFORM mode; in VIRTUAL
+    // mode nothing is queued and in-flight calls are published by the limiter
+    new ExecutorServiceMetrics(executorService, "yandexTranslateApi", Tags.empty())
+        .bindTo(meterRegistry);
+
+    return executorService;
+  }
+
+  @Bean
+  public UpstreamConcurrencyLimiter upstreamConcurrencyLimiter(
+      @Value("${translator.yandex-translate-api.adaptive-limit.min-concurrent-calls}")
+          final int minConcurrentCalls,
+      @Value("${translator.yandex-translate-api.adaptive-limit.initial-concurrent-calls}")
+          final int initialConcurrentCalls,
+      @Value("${translator.yandex-translate-api.max-concurrent-calls}")
+          final int maxConcurrentCalls,
+      @Value("${translator.yandex-translate-api.max-concurrent-calls-per-request}")
+          final int maxConcurrentCallsPerRequest,
+      @Value("${translator.yandex-translate-api.adaptive-limit.latency-threshold}")
+          final Duration latencyThreshold,
+      @Value("${translator.yandex-translate-api.adaptive-limit.backoff-ratio}")
+          final double backoffRatio,
+      final MeterRegistry meterRegistry) {
+    final var upstreamConcurrencyLimiter =
+        new UpstreamConcurrencyLimiter(
+            minConcurrentCalls,
+            initialConcurrentCalls,
+            maxConcurrentCalls,
+            maxConcurrentCallsPerRequest,
+            latencyThreshold,
+            backoffRatio);
+
+    Gauge.builder(
+            "translator.yandex.translate.api.available.permits",
+            upstreamConcurrencyLimiter,
+            UpstreamConcurrencyLimiter::getAvailableGlobalPermits)
+        .register(meterRegistry);
+    Gauge.builder(
+            "translator.yandex.translate.api.concurrency.limit",
+            upstreamConcurrencyLimiter,
+            UpstreamConcurrencyLimiter::getLimit)
+        .register(meterRegistry);
+    Gauge.builder(
+            "translator.yandex.translate.api.in.flight",
+            upstreamConcurrencyLimiter,
+            UpstreamConcurrencyLimiter::getInFlight)
+        .register(meterRegistry);
+
+    return upstreamConcurrencyLimiter;
+  }
+
+  @Bean
+  public UpstreamCircuitBreaker upstreamCircuitBreaker(
+      final Clock clock,
+      @Value("${translator.yandex-translate-api.circuit-breaker.window-size}") final int windowSize,
+      @Value("${translator.yandex-translate-api.circuit-breaker.minimum-calls}")
+          final int minimumCalls,
+      @Value("${translator.yandex-translate-api.circuit-breaker.failure-rate-threshold}")
+          final double failureRateThreshold,
+      @Value("${translator.yandex-translate-api.circuit-breaker.open-duration}")
+          final Duration openDuration,
+      @Value("${translator.yandex-translate-api.circuit-breaker.half-open-calls}")
+          final int halfOpenCalls,
+      final MeterRegistry meterRegistry) {
+    final var upstreamCircuitBreaker =
+        new UpstreamCircuitBreaker(
+            clock, windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls);
+
+    // 0 - CLOSED, 1 - OPEN, 2 - HALF_OPEN
+    Gauge.builder(
+            "translator.yandex.translate.api.circuit.breaker.state",
+            upstreamCircuitBreaker,
+            breaker -> breaker.getState().ordinal())
+        .register(meterRegistry);
+
+    return upstreamCircuitBreaker;
+  }
+
+  @Bean
+  public UpstreamQuotaLimiter upstreamQuotaLimiter(
+      @Value("${translator.yandex-translate-api.quota.requests-per-second}")
+          final double requestsPerSecond,
+      @Value("${translator.yandex-translate-api.quota.characters-per-second}")
+          final double charactersPerSecond,
+      @Value("${translator.yandex-translate-api.quota.max-wait}") final Duration maxWait,
+      final MeterRegistry meterRegistry) {
+    return new UpstreamQuotaLimiter(requestsPerSecond, charactersPerSecond, maxWait, meterRegistry);
+  }
+
+  @Bean
+  public ClientRateLimiter clientRateLimiter(
+      @Value("${translator.client-rate-limit.requests-per-second}") final double requestsPerSecond,
+      @Value("${translator.client-rate-limit.burst}") final int burst,
+      @Value("${translator.client-rate-limit.max-clients}") final long maxClients,
+      final MeterRegistry meterRegistry) {
+    final var clientRateLimiter = new ClientRateLimiter(requestsPerSecond, burst, maxClients);
+
+    Gauge.builder(
+            "translator.client.rate.limit.clients",
+            clientRateLimiter,
+            ClientRateLimiter::getClientCount)
+        .register(meterRegistry);
+
+    return clientRateLimiter;
+  }
+
+  @Bean
+  public UpstreamHedger upstreamHedger(
+      @Value("${translator.yandex-translate-api.hedging.enabled}") final boolean enabled,
+      @Value("${translator.yandex-translate-api.hedging.min-delay}") final Duration minDelay,
+      final MeterRegistry meterRegistry) {
+    // attempts run on their own virtual threads, so a call and its hedge
+    // are awaited without taking threads of the calling executor
+    return new UpstreamHedger(
+        enabled,
+        minDelay,
+        Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("yandex-translate-api-attempt-", 0).factory()),
+        meterRegistry);
+  }
+
+  @Bean
+  public ExecutorService translationMemoryWriterExecutorService(
+      @Value("${translator.translation-memory.writer-queue-capacity}") final int queueCapacity,
+      final MeterRegistry meterRegistry) {
+    // translation memory is just a cache, so it's better to drop writes
+    // than to grow the queue without bound when DB is slow
+    final var executorService =
+        new ThreadPoolExecutor(
+            1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity));
+
+    new ExecutorServiceMetrics(executorService, "translationMemoryWriter", Tags.empty())
+        .bindTo(meterRegistry);
+
+    return executorService;
+  }
+
+  @Bean
+  public TranslationRequestMeters translationRequestMeters(
+      final MeterRegistry meterRegistry,
+      @Value("${translator.metrics.max-language-pairs}") final int maxLanguagePairs) {
+    return new TranslationRequestMeters(meterRegistry, maxLanguagePairs);
+  }
+
+  @Bean
+  public ExecutorService translationStreamExecutorService() {
+    // segment tasks mostly wait for Yandex Translate API calls that are
+    // limited by UpstreamConcurrencyLimiter, so they don't need a pool
+    return Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("translation-stream-", 0).factory());
+  }
+
+  @Bean
+  public TranslationWriteBehindQueue translationWriteBehindQueue(
+      @Value("${translator.translation-writer.queue-capacity}") final int queueCapacity,
+      @Value("${translator.translation-writer.flush-size}") final int flushSize,
+      @Value("${translator.translation-writer.flush-interval}") final Duration flushInterval,
+      @Value("${translator.translation-writer.offer-timeout}") final Duration offerTimeout,
+      @Value("${translator.translation-writer.shutdown-timeout}") final Duration shutdownTimeout,
+      final TransactionTemplate transactionTemplate,
+      final TranslationRepository translationRepository,
+      final MeterRegistry meterRegistry) {
+    return new TranslationWriteBehindQueue(
+        queueCapacity,
+        flushSize,
+        flushInterval,
+        offerTimeout,
+        shutdownTimeout,
+        transactionTemplate,
+        translationRepository,
+        meterRegistry);
+  }
+
+  @Bean
+  public TranslationPartitionMaintainer translationPartitionMaintainer(
+      final Clock clock,
+      @Value("${translator.translation-partitions.future-partitions}") final int futurePartitions,
+      @Value("${translator.translation-partitions.retention-days}") final int retentionDays,
+      @Value("${translator.translation-partitions.expired-partition-action}")
+          final ExpiredPartitionAction expiredPartitionAction,
+      @Value("${translator.translation-partitions.text-delete-batch-size}")
+          final int textDeleteBatchSize,
+      final TranslationPartitionRepository translationPartitionRepository) {
+    return new TranslationPartitionMaintainer(
+        clock,
+        futurePartitions,
+        retentionDays,
+        expiredPartitionAction,
+        textDeleteBatchSize,
+        translationPartitionRepository);
   }
 
   @Bean
@@ -34,7 +281,98 @@ public class ApplicationConfiguration {
   }
 
   @Bean
-  public RestTemplate restTemplate(final RestTemplateBuilder builder) {
-    return builder.build();
+  public TranslationBatchPlanner translationBatchPlanner(
+      @Value("${translator.yandex-translate-api.max-texts-per-request}")
+          final int maxTextsPerRequest,
+      @Value("${translator.yandex-translate-api.max-characters-per-request}")
+          final int maxCharactersPerRequest) {
+    return new TranslationBatchPlanner(maxTextsPerRequest, maxCharactersPerRequest);
+  }
+
+  @Bean
+  public WordTranslationCache wordTranslationCache(
+      @Value("${translator.word-translation-cache.maximum-weight}") final long maximumWeight,
+      @Value("${translator.word-translation-cache.expire-after-write}")
+          final Duration expireAfterWrite,
+      final MeterRegistry meterRegistry) {
+    final var wordTranslationCache = new WordTranslationCache(maximumWeight, expireAfterWrite);
+
+    CaffeineCacheMetrics.monitor(
+        meterRegistry, wordTranslationCache.getNativeCache(), "wordTranslationCache");
+
+    return wordTranslationCache;
+  }
+
+  @Bean
+  public PoolingHttpClientConnectionManager yandexTranslateApiConnectionManager(
+      @Value("${translator.yandex-translate-api.http-client.max-connections}")
+          final int maxConnections,
+      @Value("${translator.yandex-translate-api.http-client.connect-timeout}")
+          final Duration connectTimeout,
+      @Value("${translator.yandex-translate-api.http-client.connection-time-to-live}")
+          final Duration connectionTimeToLive,
+      final MeterRegistry meterRegistry) {
+    final var connectionManager =
+        PoolingHttpClientConnectionManagerBuilder.create()
+            // all requests go to the same host
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnections)
+            .setDefaultConnectionConfig(
+                ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.of(connectTimeout))
+                    .setTimeToLive(TimeValue.of(connectionTimeToLive))
+                    .build())
+            .build();
+
+    new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "yandexTranslateApi")
+        .bindTo(meterRegistry);
+
+    return connectionManager;
+  }
+
+  @Bean
+  public CloseableHttpClient yandexTranslateApiHttpClient(
+      final PoolingHttpClientConnectionManager yandexTranslateApiConnectionManager,
+      @Value("${translator.yandex-translate-api.http-client.connection-request-timeout}")
+          final Duration connectionRequestTimeout,
+      @Value("${translator.yandex-translate-api.http-client.read-timeout}")
+          final Duration readTimeout,
+      @Value("${translator.yandex-translate-api.http-client.max-idle-time}")
+          final Duration maxIdleTime) {
+    // gzip and deflate responses are decompressed by HttpClient by default
+    return HttpClients.custom()
+        .setConnectionManager(yandexTranslateApiConnectionManager)
+        .setDefaultRequestConfig(
+            RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                .setResponseTimeout(Timeout.of(readTimeout))
+                .build())
+        .evictIdleConnections(TimeValue.of(maxIdleTime))
+        .evictExpiredConnections()
+        .build();
+  }
+
+  @Bean
+  public SingleFlight<WordTranslationKey, String> wordTranslationFlights(
+      final MeterRegistry meterRegistry) {
+    final var wordTranslationFlights = new SingleFlight<WordTranslationKey, String>();
+
+    FunctionCounter.builder(
+            "translator.word.translation.flights.joined",
+            wordTranslationFlights,
+            SingleFlight::getJoinedCount)
+        .description("Word translations that waited for an in-flight translation")
+        .register(meterRegistry);
+
+    return wordTranslationFlights;
+  }
+
+  @Bean
+  public RestTemplate restTemplate(
+      final RestTemplateBuilder builder, final CloseableHttpClient yandexTranslateApiHttpClient) {
+    return builder
+        .requestFactory(
+            () -> new HttpComponentsClientHttpRequestFactory(yandexTranslateApiHttpClient))
+        .build();
   }
 }
@@ -0,0 +1,8 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.configuration;
+
+public enum ExecutorMode {
+  /** Fixed pool of platform threads. */
+  PLATFORM,
+  /** New virtual thread per task. */
+  VIRTUAL
+}
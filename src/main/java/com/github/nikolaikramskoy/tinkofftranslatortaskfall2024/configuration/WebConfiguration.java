@@ -0,0 +1,44 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.configuration;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller.ClientRateLimitInterceptor;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller.TranslationHistoryAccessInterceptor;
+import java.util.concurrent.Executors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfiguration implements WebMvcConfigurer {
+
+  private final ClientRateLimitInterceptor clientRateLimitInterceptor;
+
+  private final TranslationHistoryAccessInterceptor translationHistoryAccessInterceptor;
+
+  @Override
+  public void addInterceptors(final InterceptorRegistry registry) {
+    // translate requests reach Yandex Translate API and history requests scan
+    // the DB; history is limited first, so access tokens can't be brute-forced
+    registry
+        .addInterceptor(clientRateLimitInterceptor)
+        .addPathPatterns("/v1/translate/**", "/v1/translations/**");
+    registry
+        .addInterceptor(translationHistoryAccessInterceptor)
+        .addPathPatterns("/v1/translations/**");
+  }
+
+  @Override
+  public void configureAsyncSupport(final AsyncSupportConfigurer configurer) {
+    // streamed responses are written for as long as the client reads them, so
+    // a bounded pool (Spring Boot's default one has 8 threads) makes every
+    // stream over its size wait for another one to end; timeout is still
+    // spring.mvc.async.request-timeout
+    configurer.setTaskExecutor(
+        new TaskExecutorAdapter(
+            Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("mvc-async-", 0).factory())));
+  }
+}
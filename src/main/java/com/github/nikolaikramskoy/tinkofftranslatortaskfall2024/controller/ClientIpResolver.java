@@ -0,0 +1,56 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves IP address of the client that sent a request.
+ *
+ * <p>{@code X-Forwarded-For} header can be forged by anyone, so it's used only if the request came
+ * from one of {@code trustedProxies}. Then the header is read from right to left and the first
+ * address that isn't a trusted proxy is the client.
+ */
+@Component
+public class ClientIpResolver {
+
+  private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+  private final Set<String> trustedProxies;
+
+  public ClientIpResolver(
+      @Value("${translator.client-rate-limit.trusted-proxies}") final Set<String> trustedProxies) {
+    this.trustedProxies = Set.copyOf(trustedProxies);
+  }
+
+  public String resolve(final HttpServletRequest request) {
+    final var remoteAddr = request.getRemoteAddr();
+
+    if (!trustedProxies.contains(remoteAddr)) {
+      return remoteAddr;
+    }
+
+    // the last header and the last address in it were added by the nearest proxy
+    final var addresses =
+        String.join(",", Collections.list(request.getHeaders(X_FORWARDED_FOR))).split(",");
+    var client = remoteAddr;
+
+    for (var i = addresses.length - 1; i >= 0; --i) {
+      final var address = addresses[i].trim();
+
+      if (address.isEmpty()) {
+        continue;
+      }
+
+      client = address;
+
+      if (!trustedProxies.contains(address)) {
+        break;
+      }
+    }
+
+    return client;
+  }
+}
@@ -0,0 +1,48 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ClientRateLimitExceededException;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.ClientRateLimiter;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/** Rejects requests of clients that exceeded {@link ClientRateLimiter} limit. */
+@Component
+public class ClientRateLimitInterceptor implements HandlerInterceptor {
+
+  private final boolean enabled;
+
+  private final ClientRateLimiter clientRateLimiter;
+
+  private final ClientIpResolver clientIpResolver;
+
+  public ClientRateLimitInterceptor(
+      @Value("${translator.client-rate-limit.enabled}") final boolean enabled,
+      final ClientRateLimiter clientRateLimiter,
+      final ClientIpResolver clientIpResolver) {
+    this.enabled = enabled;
+    this.clientRateLimiter = clientRateLimiter;
+    this.clientIpResolver = clientIpResolver;
+  }
+
+  @Override
+  public boolean preHandle(
+      final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+    // async dispatch of a streamed response was already counted
+    if (!enabled || request.getDispatcherType() == DispatcherType.ASYNC) {
+      return true;
+    }
+
+    final var retryAfterNanos = clientRateLimiter.tryAcquire(clientIpResolver.resolve(request));
+
+    if (retryAfterNanos > 0) {
+      throw new ClientRateLimitExceededException(Duration.ofNanos(retryAfterNanos));
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,118 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.BulkTranslateTextDtoRequest;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.TranslateTextDtoRequest;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.RequestBodyTooLargeException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+/**
+ * Limits size of translate request bodies, so a single huge request can't take a lot of heap.
+ *
+ * <p>Body with too large {@code Content-Length} is rejected before it's read. Otherwise (e.g. for
+ * chunked body) the body is counted while Jackson parses it from the stream, and parsing fails as
+ * soon as the limit is exceeded. Either way, the request fails with {@link
+ * RequestBodyTooLargeException}. Sizes of accepted bodies are recorded as {@code
+ * translator.request.body.size}.
+ */
+@ControllerAdvice
+public class RequestBodySizeLimitAdvice extends RequestBodyAdviceAdapter {
+
+  private final long maxSize;
+  private final long maxBulkSize;
+
+  private final DistributionSummary bodySizeSummary;
+
+  public RequestBodySizeLimitAdvice(
+      @Value("${translator.request-body.max-size}") final DataSize maxSize,
+      @Value("${translator.request-body.max-bulk-size}") final DataSize maxBulkSize,
+      final MeterRegistry meterRegistry) {
+    this.maxSize = maxSize.toBytes();
+    this.maxBulkSize = maxBulkSize.toBytes();
+    this.bodySizeSummary =
+        DistributionSummary.builder("translator.request.body.size")
+            .description("Size of accepted translate request bodies")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public boolean supports(
+      final MethodParameter methodParameter,
+      final Type targetType,
+      final Class<? extends HttpMessageConverter<?>> converterType) {
+    return targetType == TranslateTextDtoRequest.class
+        || targetType == BulkTranslateTextDtoRequest.class;
+  }
+
+  @Override
+  public HttpInputMessage beforeBodyRead(
+      final HttpInputMessage inputMessage,
+      final MethodParameter parameter,
+      final Type targetType,
+      final Class<? extends HttpMessageConverter<?>> converterType) {
+    final var limit = targetType == BulkTranslateTextDtoRequest.class ? maxBulkSize : maxSize;
+
+    if (inputMessage.getHeaders().getContentLength() > limit) {
+      throw new RequestBodyTooLargeException(limit);
+    }
+
+    return new SizeLimitedInputMessage(inputMessage, limit);
+  }
+
+  @Override
+  public Object afterBodyRead(
+      final Object body,
+      final HttpInputMessage inputMessage,
+      final MethodParameter parameter,
+      final Type targetType,
+      final Class<? extends HttpMessageConverter<?>> converterType) {
+    if (inputMessage instanceof final SizeLimitedInputMessage sizeLimitedInputMessage) {
+      bodySizeSummary.record(sizeLimitedInputMessage.getReadBytes());
+    }
+
+    return body;
+  }
+
+  private static class SizeLimitedInputMessage implements HttpInputMessage {
+
+    private final HttpInputMessage inputMessage;
+    private final long limit;
+
+    private SizeLimitedInputStream body;
+
+    private SizeLimitedInputMessage(final HttpInputMessage inputMessage, final long limit) {
+      this.inputMessage = inputMessage;
+      this.limit = limit;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return inputMessage.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      if (body == null) {
+        body = new SizeLimitedInputStream(inputMessage.getBody(), limit);
+      }
+
+      return body;
+    }
+
+    private long getReadBytes() {
+      return body == null ? 0 : body.getReadBytes();
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.RequestBodyTooLargeException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts bytes read from the wrapped stream and fails with {@link RequestBodyTooLargeException} as
+ * soon as more than {@code maxSize} bytes are read, so the rest of a too large body isn't read at
+ * all.
+ */
+class SizeLimitedInputStream extends FilterInputStream {
+
+  private final long maxSize;
+
+  private long readBytes;
+
+  SizeLimitedInputStream(final InputStream in, final long maxSize) {
+    super(in);
+
+    this.maxSize = maxSize;
+  }
+
+  long getReadBytes() {
+    return readBytes;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final var b = super.read();
+
+    if (b >= 0) {
+      count(1);
+    }
+
+    return b;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    // never reads past the limit by more than a byte, however large the buffer is
+    final var n = super.read(b, off, (int) Math.min(len, maxSize - readBytes + 1));
+
+    if (n > 0) {
+      count(n);
+    }
+
+    return n;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    final var skipped = super.skip(Math.min(n, maxSize - readBytes + 1));
+
+    count(skipped);
+
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void count(final long n) {
+    readBytes += n;
+
+    if (readBytes > maxSize) {
+      throw new RequestBodyTooLargeException(maxSize);
+    }
+  }
+}
@@ -1,15 +1,27 @@
 package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.BulkTranslateTextDtoRequest;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.TranslateTextDtoRequest;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.AvailableLanguagesDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.BulkTranslateTextDtoResponse;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslateTextDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.YandexApiException;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -18,16 +30,23 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping(path = "/v1")
 @Tag(name = "Translation API", description = "Translate text using Yandex Translate API")
 @Validated
 @RequiredArgsConstructor
+@Slf4j
 public class TranslationController {
 
   private final TranslationService translationService;
 
+  private final ClientIpResolver clientIpResolver;
+
+  private final ObjectMapper objectMapper;
+
   @GetMapping(path = "/available-languages", produces = MediaType.APPLICATION_JSON_VALUE)
   @Operation(summary = "Get languages available for translation")
   @ApiResponse(responseCode = "200", description = "Successful query")
@@ -46,9 +65,81 @@ public class TranslationController {
   public ResponseEntity<TranslateTextDtoResponse> translateText(
       @Valid @RequestBody final TranslateTextDtoRequest request,
       final HttpServletRequest httpServletRequest) {
-    // in case of using some kind of reverse proxy or LB we need to check
-    // special HTTP header for real client IP address
     return ResponseEntity.ok(
-        translationService.translateText(request, httpServletRequest.getRemoteAddr()));
+        translationService.translateText(request, clientIpResolver.resolve(httpServletRequest)));
+  }
+
+  @PostMapping(
+      path = "/translate/bulk",
+      consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(
+      summary = "Translate many texts",
+      description =
+          "Translate up to 1000 texts from source language to target language; results are"
+              + " returned in the same order, a text that can't be translated gets an error")
+  @ApiResponse(responseCode = "200", description = "Texts are translated, some may have errors")
+  public ResponseEntity<BulkTranslateTextDtoResponse> translateTexts(
+      @Valid @RequestBody final BulkTranslateTextDtoRequest request,
+      final HttpServletRequest httpServletRequest) {
+    return ResponseEntity.ok(
+        translationService.translateTexts(request, clientIpResolver.resolve(httpServletRequest)));
+  }
+
+  @PostMapping(
+      path = "/translate/stream",
+      consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @Operation(
+      summary = "Translate text in a stream",
+      description =
+          "Translate text from source language to target language; translated segments are"
+              + " returned as newline-delimited JSON as soon as they are ready, their"
+              + " concatenation is the whole translated text. An error after the first segment"
+              + " is returned as the last line")
+  @ApiResponse(responseCode = "200", description = "Translation is started")
+  public ResponseEntity<StreamingResponseBody> translateTextStream(
+      @Valid @RequestBody final TranslateTextDtoRequest request,
+      final HttpServletRequest httpServletRequest) {
+    // arguments and languages are checked here, so their errors still have proper HTTP status
+    final var segments =
+        translationService.translateTextStream(
+            request, clientIpResolver.resolve(httpServletRequest));
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(outputStream -> writeSegments(segments, outputStream));
+  }
+
+  private void writeSegments(
+      final Stream<TranslateTextDtoResponse> segments, final OutputStream outputStream)
+      throws IOException {
+    // closing the stream cancels pending segments if client is gone
+    try (segments) {
+      final var iterator = segments.iterator();
+
+      while (iterator.hasNext()) {
+        writeLine(outputStream, iterator.next());
+      }
+    } catch (final ApplicationException | YandexApiException | RestClientException e) {
+      // HTTP status is already sent, so the error is the last line of the response
+      log.info("streamed translation failed", e);
+
+      writeLine(
+          outputStream,
+          new ErrorDtoResponse(Collections.singletonList(new ErrorDto(e.getMessage()))));
+    } catch (final RuntimeException e) {
+      log.error("streamed translation failed unexpectedly", e);
+
+      writeLine(
+          outputStream,
+          new ErrorDtoResponse(Collections.singletonList(new ErrorDto(e.getMessage()))));
+    }
+  }
+
+  private void writeLine(final OutputStream outputStream, final Object value) throws IOException {
+    outputStream.write(objectMapper.writeValueAsBytes(value));
+    outputStream.write('\n');
+    outputStream.flush();
   }
 }
@@ -0,0 +1,54 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationError;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Rejects translation history requests without {@code Authorization: Bearer <accessToken>} header.
+ * History exposes texts and IP addresses of all clients, so it's disabled while {@code accessToken}
+ * is blank.
+ */
+@Component
+public class TranslationHistoryAccessInterceptor implements HandlerInterceptor {
+
+  private static final String BEARER_PREFIX = "Bearer ";
+
+  private final byte[] accessToken;
+
+  public TranslationHistoryAccessInterceptor(
+      @Value("${translator.translation-history.access-token}") final String accessToken) {
+    this.accessToken = accessToken.strip().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public boolean preHandle(
+      final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+    // async dispatch of an export was already checked
+    if (request.getDispatcherType() == DispatcherType.ASYNC) {
+      return true;
+    }
+
+    final var authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+
+    // comparison takes the same time wherever tokens differ, so it doesn't leak the token
+    if (accessToken.length == 0
+        || authorization == null
+        || !authorization.startsWith(BEARER_PREFIX)
+        || !MessageDigest.isEqual(
+            accessToken,
+            authorization.substring(BEARER_PREFIX.length()).getBytes(StandardCharsets.UTF_8))) {
+      throw new ApplicationException(ApplicationError.TRANSLATION_HISTORY_ACCESS_DENIED);
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,136 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslationsDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.TranslationFilter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationHistoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping(path = "/v1/translations")
+@Tag(
+    name = "Translation history API",
+    description =
+        "Find translations that were made before. Operator-only: exposes texts and IP addresses"
+            + " of all clients, so every request needs \"Authorization: Bearer <access token>\"")
+@Validated
+@RequiredArgsConstructor
+@Slf4j
+public class TranslationHistoryController {
+
+  private static final int MAX_LIMIT = 1000;
+
+  private final TranslationHistoryService translationHistoryService;
+
+  private final ObjectMapper objectMapper;
+
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(
+      summary = "Find translations",
+      description =
+          "Find translations by client IP address, language pair and time range [from, to);"
+              + " translations are returned from newest to oldest, the next page is requested"
+              + " with nextCursor of the previous one")
+  @ApiResponse(responseCode = "200", description = "Successful query")
+  public ResponseEntity<TranslationsDtoResponse> findTranslations(
+      @RequestParam(required = false) final String clientIp,
+      @RequestParam(required = false) final String sourceLanguage,
+      @RequestParam(required = false) final String targetLanguage,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          final LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          final LocalDateTime to,
+      @RequestParam(required = false) final String cursor,
+      @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_LIMIT) final int limit) {
+    return ResponseEntity.ok(
+        translationHistoryService.findTranslations(
+            new TranslationFilter(clientIp, sourceLanguage, targetLanguage, from, to),
+            cursor,
+            limit));
+  }
+
+  @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @Operation(
+      summary = "Export translations",
+      description =
+          "Export all translations that match the same filters as in \"Find translations\" as"
+              + " newline-delimited JSON, from newest to oldest. An error after the first"
+              + " translation is returned as the last line")
+  @ApiResponse(responseCode = "200", description = "Export is started")
+  public ResponseEntity<StreamingResponseBody> exportTranslations(
+      @RequestParam(required = false) final String clientIp,
+      @RequestParam(required = false) final String sourceLanguage,
+      @RequestParam(required = false) final String targetLanguage,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          final LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          final LocalDateTime to) {
+    final var filter = new TranslationFilter(clientIp, sourceLanguage, targetLanguage, from, to);
+
+    // filter is checked here, so its errors still have proper HTTP status
+    translationHistoryService.checkFilter(filter);
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(outputStream -> writeTranslations(filter, outputStream));
+  }
+
+  private void writeTranslations(final TranslationFilter filter, final OutputStream outputStream)
+      throws IOException {
+    try {
+      translationHistoryService.exportTranslations(
+          filter,
+          translation -> {
+            try {
+              outputStream.write(objectMapper.writeValueAsBytes(translation));
+              outputStream.write('\n');
+            } catch (final IOException e) {
+              // e.g. client is gone, it stops reading from DB
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    } catch (final DataAccessException e) {
+      // HTTP status is already sent, so the error is the last line of the response
+      log.info("translation export failed", e);
+
+      writeError(outputStream, e);
+    } catch (final RuntimeException e) {
+      log.error("translation export failed unexpectedly", e);
+
+      writeError(outputStream, e);
+    }
+  }
+
+  private void writeError(final OutputStream outputStream, final RuntimeException e)
+      throws IOException {
+    outputStream.write(
+        objectMapper.writeValueAsBytes(
+            new ErrorDtoResponse(Collections.singletonList(new ErrorDto(e.getMessage())))));
+    outputStream.write('\n');
+  }
+}
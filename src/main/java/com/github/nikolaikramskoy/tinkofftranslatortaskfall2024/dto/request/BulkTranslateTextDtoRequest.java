@@ -0,0 +1,15 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+// blank texts aren't rejected here, they get their own errors in the response
+public record BulkTranslateTextDtoRequest(
+    @NotEmpty @Size(max = BulkTranslateTextDtoRequest.MAX_TEXTS) List<String> texts,
+    @NotBlank String sourceLanguage,
+    @NotBlank String targetLanguage) {
+
+  public static final int MAX_TEXTS = 1000;
+}
@@ -0,0 +1,5 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response;
+
+import java.util.List;
+
+public record BulkTranslateTextDtoResponse(List<BulkTranslationDto> translations) {}
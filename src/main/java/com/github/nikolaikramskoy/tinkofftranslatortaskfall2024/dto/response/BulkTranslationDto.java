@@ -0,0 +1,6 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDto;
+
+// exactly one of translatedText and error is not null
+public record BulkTranslationDto(String translatedText, ErrorDto error) {}
@@ -0,0 +1,13 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record TranslationDto(
+    UUID id,
+    String clientIp,
+    LocalDateTime timestamp,
+    String sourceLanguage,
+    String targetLanguage,
+    String text,
+    String translatedText) {}
@@ -0,0 +1,6 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record TranslationsDtoResponse(List<TranslationDto> translations, String nextCursor) {}
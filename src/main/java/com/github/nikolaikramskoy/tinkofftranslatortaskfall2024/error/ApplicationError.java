@@ -2,11 +2,26 @@ package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import org.springframework.http.HttpStatus;
 
 @AllArgsConstructor
 @Getter
 public enum ApplicationError {
-  TIMEOUT("Timeout, try again later.");
+  TIMEOUT("Timeout, try again later.", HttpStatus.INTERNAL_SERVER_ERROR),
+  DEADLINE_EXCEEDED("Translation took too long, try again later.", HttpStatus.GATEWAY_TIMEOUT),
+  UPSTREAM_UNAVAILABLE(
+      "Translation is temporarily unavailable, try again later.", HttpStatus.SERVICE_UNAVAILABLE),
+  UPSTREAM_QUOTA_EXHAUSTED(
+      "Too many translations right now, try again later.", HttpStatus.TOO_MANY_REQUESTS),
+  CLIENT_RATE_LIMIT_EXCEEDED("Too many requests, try again later.", HttpStatus.TOO_MANY_REQUESTS),
+  REQUEST_BODY_TOO_LARGE("Request body is too large.", HttpStatus.PAYLOAD_TOO_LARGE),
+  UNAVAILABLE_LANGUAGE(
+      "Source or target language is not available for translation.", HttpStatus.BAD_REQUEST),
+  INVALID_CLIENT_IP("Client IP address is invalid.", HttpStatus.BAD_REQUEST),
+  INVALID_CURSOR("Cursor is invalid, use nextCursor of the previous page.", HttpStatus.BAD_REQUEST),
+  TRANSLATION_HISTORY_ACCESS_DENIED(
+      "Translation history requires a valid access token.", HttpStatus.FORBIDDEN);
 
   private final String message;
+  private final HttpStatus httpStatus;
 }
@@ -0,0 +1,16 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error;
+
+import java.time.Duration;
+import lombok.Getter;
+
+@Getter
+public class ClientRateLimitExceededException extends ApplicationException {
+
+  private final Duration retryAfter;
+
+  public ClientRateLimitExceededException(final Duration retryAfter) {
+    super(ApplicationError.CLIENT_RATE_LIMIT_EXCEEDED);
+
+    this.retryAfter = retryAfter;
+  }
+}
@@ -7,8 +7,10 @@ import jakarta.validation.ConstraintViolationException;
 import java.util.ArrayList;
 import java.util.Collections;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -63,12 +65,43 @@ public class GlobalExceptionHandler {
         .body(new ErrorDtoResponse(errorDtos));
   }
 
+  @ExceptionHandler(HttpMessageNotReadableException.class)
+  public ResponseEntity<ErrorDtoResponse> handleHttpMessageNotReadableException(
+      final HttpMessageNotReadableException e) {
+    // body stream may fail while Jackson parses it, e.g. when it's too large
+    for (var cause = e.getCause(); cause != null; cause = cause.getCause()) {
+      if (cause instanceof final ApplicationException applicationException) {
+        return handleApplicationException(applicationException);
+      }
+    }
+
+    log.info(e.getMessage());
+
+    return ResponseEntity.badRequest()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new ErrorDtoResponse(Collections.singletonList(new ErrorDto(e.getMessage()))));
+  }
+
   @ExceptionHandler(ApplicationException.class)
   public ResponseEntity<ErrorDtoResponse> handleApplicationException(final ApplicationException e) {
     log.info("ApplicationException", e);
 
-    // or maybe 4xx is better...
-    return ResponseEntity.internalServerError()
+    return ResponseEntity.status(e.getApplicationError().getHttpStatus())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new ErrorDtoResponse(Collections.singletonList(new ErrorDto(e.getMessage()))));
+  }
+
+  @ExceptionHandler(ClientRateLimitExceededException.class)
+  public ResponseEntity<ErrorDtoResponse> handleClientRateLimitExceededException(
+      final ClientRateLimitExceededException e) {
+    log.debug(e.getMessage());
+
+    // Retry-After is in whole seconds, so it's rounded up
+    final var retryAfterSeconds =
+        Math.max(1, e.getRetryAfter().plusSeconds(1).minusNanos(1).toSeconds());
+
+    return ResponseEntity.status(e.getApplicationError().getHttpStatus())
+        .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
         .contentType(MediaType.APPLICATION_JSON)
         .body(new ErrorDtoResponse(Collections.singletonList(new ErrorDto(e.getMessage()))));
   }
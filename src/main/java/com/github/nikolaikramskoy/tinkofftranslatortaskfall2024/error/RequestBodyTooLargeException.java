@@ -0,0 +1,15 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error;
+
+import lombok.Getter;
+
+@Getter
+public class RequestBodyTooLargeException extends ApplicationException {
+
+  private final long maxSize;
+
+  public RequestBodyTooLargeException(final long maxSize) {
+    super(ApplicationError.REQUEST_BODY_TOO_LARGE);
+
+    this.maxSize = maxSize;
+  }
+}
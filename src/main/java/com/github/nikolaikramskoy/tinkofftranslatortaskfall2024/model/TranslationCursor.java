@@ -0,0 +1,10 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Position in translation history that is ordered by {@code (timestamp, id)} from newest to oldest:
+ * the next page starts right after the translation with this {@code timestamp} and {@code id}.
+ */
+public record TranslationCursor(LocalDateTime timestamp, UUID id) {}
@@ -0,0 +1,16 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filter of translation history, {@code null} field matches any value.
+ *
+ * @param from inclusive
+ * @param to exclusive
+ */
+public record TranslationFilter(
+    String clientIp,
+    String sourceLanguage,
+    String targetLanguage,
+    LocalDateTime from,
+    LocalDateTime to) {}
@@ -0,0 +1,24 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/** Hashes that identify texts stored in DB. */
+final class Hashes {
+
+  private Hashes() {}
+
+  /**
+   * @return SHA-256 of UTF-8 encoded {@code text}, the same as {@code sha256(convert_to(text,
+   *     'UTF8'))} in PostgreSQL
+   */
+  static byte[] sha256(final String text) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+    } catch (final NoSuchAlgorithmException e) {
+      // every Java platform must support SHA-256
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.TranslationCursor;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.TranslationFilter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads records of translate requests from newest to oldest. Rows are ordered by {@code (timestamp,
+ * id)}, so a page continues right after the last row of the previous one (keyset pagination) and is
+ * read from an index instead of skipping all previous rows like OFFSET does.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class TranslationHistoryRepository {
+
+  private static final String FIND_TRANSLATIONS_QUERY_PREFIX =
+      "SELECT tr.id, host(tr.client_ip) AS client_ip, tr.\"timestamp\", tr.source_language, "
+          + "tr.target_language, t.content AS text, tt.content AS translated_text "
+          + "FROM translation tr "
+          + "JOIN translation_text t ON t.hash = tr.text_hash "
+          + "JOIN translation_text tt ON tt.hash = tr.translated_text_hash WHERE TRUE";
+
+  private static final String FIND_TRANSLATIONS_QUERY_ORDER =
+      " ORDER BY tr.\"timestamp\" DESC, tr.id DESC";
+
+  private final JdbcClient jdbcClient;
+
+  /**
+   * @param after cursor of the last translation of the previous page, {@code null} for the first
+   *     page
+   * @return at most {@code limit} translations that match {@code filter}, from newest to oldest
+   */
+  public List<Translation> findTranslations(
+      final TranslationFilter filter, final TranslationCursor after, final int limit) {
+    log.debug("Trying to find {} Translations after {} in DB", limit, after);
+
+    final var params = new HashMap<String, Object>();
+    final var query = buildQuery(filter, after, params).append(" LIMIT :limit");
+
+    params.put("limit", limit);
+
+    return jdbcClient
+        .sql(query.toString())
+        .params(params)
+        .query(TranslationHistoryRepository::mapTranslation)
+        .list();
+  }
+
+  private static StringBuilder buildQuery(
+      final TranslationFilter filter,
+      final TranslationCursor after,
+      final Map<String, Object> params) {
+    final var query = new StringBuilder(FIND_TRANSLATIONS_QUERY_PREFIX);
+
+    if (filter.clientIp() != null) {
+      query.append(" AND tr.client_ip = CAST(:clientIp AS inet)");
+      params.put("clientIp", filter.clientIp());
+    }
+    if (filter.sourceLanguage() != null) {
+      query.append(" AND tr.source_language = :sourceLanguage");
+      params.put("sourceLanguage", filter.sourceLanguage());
+    }
+    if (filter.targetLanguage() != null) {
+      query.append(" AND tr.target_language = :targetLanguage");
+      params.put("targetLanguage", filter.targetLanguage());
+    }
+    if (filter.from() != null) {
+      query.append(" AND tr.\"timestamp\" >= :from");
+      params.put("from", filter.from());
+    }
+    if (filter.to() != null) {
+      query.append(" AND tr.\"timestamp\" < :to");
+      params.put("to", filter.to());
+    }
+    if (after != null) {
+      // the first condition lets partitions of later days be pruned, the row comparison is a
+      // single range scan of ("timestamp", id) part of the index
+      query
+          .append(" AND tr.\"timestamp\" <= :afterTimestamp")
+          .append(" AND (tr.\"timestamp\", tr.id) < (:afterTimestamp, :afterId)");
+      params.put("afterTimestamp", after.timestamp());
+      params.put("afterId", after.id());
+    }
+
+    return query.append(FIND_TRANSLATIONS_QUERY_ORDER);
+  }
+
+  private static Translation mapTranslation(final ResultSet resultSet, final int rowNum)
+      throws SQLException {
+    return new Translation(
+        resultSet.getObject("id", UUID.class),
+        resultSet.getString("client_ip"),
+        resultSet.getObject("timestamp", LocalDateTime.class),
+        resultSet.getString("source_language"),
+        resultSet.getString("target_language"),
+        resultSet.getString("text"),
+        resultSet.getString("translated_text"));
+  }
+}
@@ -0,0 +1,112 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Daily partitions of {@code translation} table. Partition of a day is named {@code
+ * translation_pYYYYMMDD} and holds records whose {@code timestamp} is within that day.
+ */
+@Repository
+@AllArgsConstructor
+@Slf4j
+public class TranslationPartitionRepository {
+
+  private static final String FIND_PARTITIONS_QUERY =
+      "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+          + "WHERE i.inhparent = CAST('translation' AS regclass)";
+
+  // tables named like partitions that aren't attached to any table, e.g. detached ones
+  private static final String FIND_DETACHED_PARTITIONS_QUERY =
+      "SELECT relname FROM pg_class WHERE relkind = 'r' AND NOT relispartition "
+          + "AND relnamespace = CAST(current_schema() AS regnamespace) "
+          + "AND relname LIKE 'translation_p%'";
+
+  // records of expired days in the default partition may still reference such texts;
+  // last_used_on is checked again by DELETE, so a text that was used meanwhile is kept
+  private static final String DELETE_UNUSED_TEXTS_QUERY =
+      "DELETE FROM translation_text WHERE last_used_on < :day AND hash IN "
+          + "(SELECT hash FROM translation_text WHERE last_used_on < :day LIMIT :limit) "
+          + "AND NOT EXISTS (SELECT 1 FROM translation_default WHERE \"timestamp\" < :day)";
+
+  private static final Pattern PARTITION_NAME_PATTERN = Pattern.compile("translation_p(\\d{8})");
+
+  private final JdbcClient jdbcClient;
+
+  /**
+   * @return days of all daily partitions attached to {@code translation}, default partition is not
+   *     included
+   */
+  public List<LocalDate> findPartitionDays() {
+    return findDays(FIND_PARTITIONS_QUERY);
+  }
+
+  /**
+   * @return days of daily partitions that were detached from {@code translation} and are still kept
+   *     in the current schema under their names
+   */
+  public List<LocalDate> findDetachedPartitionDays() {
+    return findDays(FIND_DETACHED_PARTITIONS_QUERY);
+  }
+
+  public void createPartition(final LocalDate day) {
+    log.debug("Trying to create partition of {} in DB", day);
+
+    // DDL can't have bind parameters, day is formatted by LocalDate, so it's safe to inline
+    jdbcClient
+        .sql(
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF translation FOR VALUES FROM ('%s') TO ('%s')"
+                .formatted(partitionName(day), day, day.plusDays(1)))
+        .update();
+  }
+
+  /** Detaches partition of {@code day}, so it's kept as a standalone table. */
+  public void detachPartition(final LocalDate day) {
+    log.debug("Trying to detach partition of {} in DB", day);
+
+    jdbcClient
+        .sql("ALTER TABLE translation DETACH PARTITION %s".formatted(partitionName(day)))
+        .update();
+  }
+
+  public void dropPartition(final LocalDate day) {
+    log.debug("Trying to drop partition of {} in DB", day);
+
+    jdbcClient.sql("DROP TABLE IF EXISTS %s".formatted(partitionName(day))).update();
+  }
+
+  /**
+   * Deletes up to {@code limit} texts of {@code translation_text} that aren't used by records of
+   * {@code day} and later days, i.e. are referenced only by already dropped partitions.
+   *
+   * @return number of deleted texts, less than {@code limit} if there are no more of them
+   */
+  public int deleteTextsUnusedSince(final LocalDate day, final int limit) {
+    log.debug("Trying to delete up to {} texts unused since {} from DB", limit, day);
+
+    return jdbcClient
+        .sql(DELETE_UNUSED_TEXTS_QUERY)
+        .param("day", day)
+        .param("limit", limit)
+        .update();
+  }
+
+  private List<LocalDate> findDays(final String partitionNamesQuery) {
+    return jdbcClient.sql(partitionNamesQuery).query(String.class).list().stream()
+        .map(PARTITION_NAME_PATTERN::matcher)
+        .filter(matcher -> matcher.matches())
+        .map(matcher -> LocalDate.parse(matcher.group(1), DateTimeFormatter.BASIC_ISO_DATE))
+        .toList();
+  }
+
+  private static String partitionName(final LocalDate day) {
+    return "translation_p" + Objects.requireNonNull(day).format(DateTimeFormatter.BASIC_ISO_DATE);
+  }
+}
@@ -1,29 +1,101 @@
 package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository;
 
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.sql.DataSource;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Records of translate requests. Texts and their translations are stored once per distinct content
+ * in {@code translation_text} table and referenced from {@code translation} by SHA-256 hash, since
+ * many requests have the same text.
+ */
 @Repository
 @AllArgsConstructor
 @Slf4j
 public class TranslationRepository {
 
+  private static final String SAVE_TRANSLATIONS_QUERY_PREFIX =
+      "INSERT INTO translation (id, client_ip, \"timestamp\", source_language, "
+          + "target_language, text_hash, translated_text_hash) VALUES ";
+
+  private static final String SAVE_TRANSLATIONS_QUERY_SUFFIX =
+      " ON CONFLICT DO NOTHING RETURNING id";
+
+  // client IP is bound as varchar, so it needs an explicit cast to inet
   private static final String SAVE_TRANSLATION_QUERY =
+      SAVE_TRANSLATIONS_QUERY_PREFIX
+          + "(:id, CAST(:clientIp AS inet), :timestamp, :sourceLanguage, :targetLanguage, "
+          + ":textHash, :translatedTextHash) ON CONFLICT DO NOTHING";
+
+  // text that is already used today is neither locked nor written, so repeated texts cost no WAL;
+  // an older one is locked by the update, so it isn't deleted concurrently as unused
+  private static final String TOUCH_TEXTS_QUERY =
+      "UPDATE translation_text SET last_used_on = :lastUsedOn "
+          + "WHERE hash IN (:hashes) AND last_used_on < :lastUsedOn";
+
+  private static final String SAVE_TEXTS_QUERY_PREFIX =
+      "INSERT INTO translation_text (hash, content, last_used_on) VALUES ";
+
+  private static final String SAVE_TEXTS_QUERY_SUFFIX = " ON CONFLICT (hash) DO NOTHING";
+
+  private static final String CREATE_STAGING_TABLE_QUERY =
+      "CREATE TEMPORARY TABLE IF NOT EXISTS translation_staging "
+          + "(LIKE translation INCLUDING DEFAULTS) ON COMMIT DELETE ROWS";
+
+  private static final String TRUNCATE_STAGING_TABLE_QUERY = "TRUNCATE translation_staging";
+
+  private static final String COPY_INTO_STAGING_TABLE_QUERY =
+      "COPY translation_staging (id, client_ip, \"timestamp\", source_language, "
+          + "target_language, text_hash, translated_text_hash) FROM STDIN";
+
+  private static final String SAVE_TRANSLATIONS_FROM_STAGING_TABLE_QUERY =
       "INSERT INTO translation (id, client_ip, \"timestamp\", source_language, "
-          + "target_language, text, translated_text) VALUES (:id, :clientIp, "
-          + ":timestamp, :sourceLanguage, :targetLanguage, :text, :translatedText)";
+          + "target_language, text_hash, translated_text_hash) SELECT id, client_ip, "
+          + "\"timestamp\", source_language, target_language, text_hash, translated_text_hash "
+          + "FROM translation_staging"
+          + SAVE_TRANSLATIONS_QUERY_SUFFIX;
+
+  // there are at most 7 parameters per row and PostgreSQL allows at most 65535 parameters per query
+  private static final int MAX_ROWS_PER_INSERT = 1000;
+
+  // starting from this size COPY is faster than multi-row INSERT
+  private static final int COPY_THRESHOLD = 5000;
 
   private final JdbcClient jdbcClient;
 
+  private final DataSource dataSource;
+
+  /**
+   * Saves {@code translation} unless translation with the same id already exists in the table.
+   *
+   * @return 1 if {@code translation} was inserted and 0 if it was skipped
+   */
+  @Transactional
   public int saveTranslation(final Translation translation) {
     // this is an interesting solution
     // return jdbcClient.sql(SAVE_TRANSLATION_QUERY).paramSource(translation).update();
 
     log.debug("Trying to insert Translation {} into DB", translation.id());
 
+    final var hashes = saveTexts(List.of(translation));
+
     return jdbcClient
         .sql(SAVE_TRANSLATION_QUERY)
         .param("id", translation.id())
@@ -31,8 +103,217 @@ public class TranslationRepository {
         .param("timestamp", translation.timestamp())
         .param("sourceLanguage", translation.sourceLanguage())
         .param("targetLanguage", translation.targetLanguage())
-        .param("text", translation.text())
-        .param("translatedText", translation.translatedText())
+        .param("textHash", hashes.get(translation.text()))
+        .param("translatedTextHash", hashes.get(translation.translatedText()))
         .update();
   }
+
+  /**
+   * Saves {@code translations} using multi-row INSERTs, or COPY via a temporary staging table for
+   * large batches. Translation whose id already exists in the table is skipped.
+   *
+   * @return per-row outcomes: i-th element is 1 if i-th translation was inserted and 0 if it was
+   *     skipped
+   */
+  @Transactional
+  public int[] saveTranslations(final List<Translation> translations) {
+    log.debug("Trying to insert {} Translations into DB", translations.size());
+
+    final var hashes = saveTexts(translations);
+    final var insertedIds =
+        translations.size() >= COPY_THRESHOLD
+            ? saveTranslationsWithCopy(translations, hashes)
+            : saveTranslationsWithInsert(translations, hashes);
+
+    final var outcomes = new int[translations.size()];
+
+    for (var i = 0; i < outcomes.length; ++i) {
+      // remove() makes sure that only the first of duplicate ids is reported as inserted
+      outcomes[i] = insertedIds.remove(translations.get(i).id()) ? 1 : 0;
+    }
+
+    return outcomes;
+  }
+
+  /**
+   * Saves distinct texts and translated texts of {@code translations} into {@code
+   * translation_text}, and marks already existing ones as used on the day of the latest of {@code
+   * translations}. Existing texts are updated before new ones are inserted, so a text deleted as
+   * unused in between is inserted again instead of being lost.
+   *
+   * @return map from text to its hash
+   */
+  private HashMap<String, byte[]> saveTexts(final List<Translation> translations) {
+    final var hashes = new HashMap<String, byte[]>(translations.size() * 2);
+    var lastUsedOn = LocalDate.MIN;
+
+    for (final var translation : translations) {
+      hashes.computeIfAbsent(translation.text(), Hashes::sha256);
+      hashes.computeIfAbsent(translation.translatedText(), Hashes::sha256);
+
+      if (translation.timestamp().toLocalDate().isAfter(lastUsedOn)) {
+        lastUsedOn = translation.timestamp().toLocalDate();
+      }
+    }
+
+    // concurrent batches lock the same texts in the same order, so they can't deadlock
+    final var texts =
+        hashes.entrySet().stream()
+            .sorted((a, b) -> Arrays.compareUnsigned(a.getValue(), b.getValue()))
+            .toList();
+
+    for (var from = 0; from < texts.size(); from += MAX_ROWS_PER_INSERT) {
+      final var chunk = texts.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, texts.size()));
+
+      jdbcClient
+          .sql(TOUCH_TEXTS_QUERY)
+          .param("hashes", chunk.stream().map(Map.Entry::getValue).toList())
+          .param("lastUsedOn", lastUsedOn)
+          .update();
+
+      final var query = new StringBuilder(SAVE_TEXTS_QUERY_PREFIX);
+      final var params = new HashMap<String, Object>(chunk.size() * 2 + 1);
+
+      for (var i = 0; i < chunk.size(); ++i) {
+        if (i > 0) {
+          query.append(", ");
+        }
+
+        query.append("(:hash").append(i).append(", :content").append(i).append(", :lastUsedOn)");
+
+        params.put("hash" + i, chunk.get(i).getValue());
+        params.put("content" + i, chunk.get(i).getKey());
+      }
+
+      params.put("lastUsedOn", lastUsedOn);
+
+      jdbcClient.sql(query.append(SAVE_TEXTS_QUERY_SUFFIX).toString()).params(params).update();
+    }
+
+    return hashes;
+  }
+
+  private HashSet<UUID> saveTranslationsWithInsert(
+      final List<Translation> translations, final Map<String, byte[]> hashes) {
+    final var insertedIds = new HashSet<UUID>(translations.size());
+
+    for (var from = 0; from < translations.size(); from += MAX_ROWS_PER_INSERT) {
+      final var chunk =
+          translations.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, translations.size()));
+      final var query = new StringBuilder(SAVE_TRANSLATIONS_QUERY_PREFIX);
+      final var params = new HashMap<String, Object>(chunk.size() * 7);
+
+      for (var i = 0; i < chunk.size(); ++i) {
+        final var translation = chunk.get(i);
+
+        if (i > 0) {
+          query.append(", ");
+        }
+
+        query
+            .append("(:id")
+            .append(i)
+            .append(", CAST(:clientIp")
+            .append(i)
+            .append(" AS inet), :timestamp")
+            .append(i)
+            .append(", :sourceLanguage")
+            .append(i)
+            .append(", :targetLanguage")
+            .append(i)
+            .append(", :textHash")
+            .append(i)
+            .append(", :translatedTextHash")
+            .append(i)
+            .append(')');
+
+        params.put("id" + i, translation.id());
+        params.put("clientIp" + i, translation.clientIp());
+        params.put("timestamp" + i, translation.timestamp());
+        params.put("sourceLanguage" + i, translation.sourceLanguage());
+        params.put("targetLanguage" + i, translation.targetLanguage());
+        params.put("textHash" + i, hashes.get(translation.text()));
+        params.put("translatedTextHash" + i, hashes.get(translation.translatedText()));
+      }
+
+      insertedIds.addAll(
+          jdbcClient
+              .sql(query.append(SAVE_TRANSLATIONS_QUERY_SUFFIX).toString())
+              .params(params)
+              .query(UUID.class)
+              .list());
+    }
+
+    return insertedIds;
+  }
+
+  private HashSet<UUID> saveTranslationsWithCopy(
+      final List<Translation> translations, final Map<String, byte[]> hashes) {
+    jdbcClient.sql(CREATE_STAGING_TABLE_QUERY).update();
+    jdbcClient.sql(TRUNCATE_STAGING_TABLE_QUERY).update();
+
+    // connection is bound to the current transaction, so it must not be closed here
+    final var connection = DataSourceUtils.getConnection(dataSource);
+
+    try {
+      connection
+          .unwrap(PGConnection.class)
+          .getCopyAPI()
+          .copyIn(
+              COPY_INTO_STAGING_TABLE_QUERY, new StringReader(toCopyText(translations, hashes)));
+    } catch (final SQLException e) {
+      throw new UncategorizedSQLException("COPY", COPY_INTO_STAGING_TABLE_QUERY, e);
+    } catch (final IOException e) {
+      // StringReader doesn't throw IOException
+      throw new AssertionError(e);
+    }
+
+    return new HashSet<>(
+        jdbcClient.sql(SAVE_TRANSLATIONS_FROM_STAGING_TABLE_QUERY).query(UUID.class).list());
+  }
+
+  // https://www.postgresql.org/docs/current/sql-copy.html#id-1.9.3.55.9.2
+  private static String toCopyText(
+      final List<Translation> translations, final Map<String, byte[]> hashes) {
+    final var text = new StringBuilder(translations.size() * 128);
+
+    for (final var translation : translations) {
+      text.append(translation.id()).append('\t');
+      appendCopyValue(text, translation.clientIp()).append('\t');
+      text.append(translation.timestamp()).append('\t');
+      appendCopyValue(text, translation.sourceLanguage()).append('\t');
+      appendCopyValue(text, translation.targetLanguage()).append('\t');
+      appendCopyValue(text, hashes.get(translation.text())).append('\t');
+      appendCopyValue(text, hashes.get(translation.translatedText())).append('\n');
+    }
+
+    return text.toString();
+  }
+
+  private static StringBuilder appendCopyValue(final StringBuilder text, final String value) {
+    for (var i = 0; i < value.length(); ++i) {
+      final var c = value.charAt(i);
+
+      switch (c) {
+        case '\\' -> text.append("\\\\");
+        case '\t' -> text.append("\\t");
+        case '\n' -> text.append("\\n");
+        case '\r' -> text.append("\\r");
+        default -> text.append(c);
+      }
+    }
+
+    return text;
+  }
+
+  // bytea in hex format, its leading backslash is escaped as any other one
+  private static StringBuilder appendCopyValue(final StringBuilder text, final byte[] value) {
+    text.append("\\\\x");
+
+    for (final var b : value) {
+      text.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+
+    return text;
+  }
 }
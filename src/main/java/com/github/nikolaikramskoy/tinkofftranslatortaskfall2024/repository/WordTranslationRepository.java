@@ -0,0 +1,133 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Translation memory: persistent storage of single word translations. */
+@Repository
+@AllArgsConstructor
+@Slf4j
+public class WordTranslationRepository {
+
+  private static final String FIND_TRANSLATIONS_QUERY =
+      "SELECT source_text, translated_text FROM word_translation WHERE source_language ="
+          + " :sourceLanguage AND target_language = :targetLanguage AND source_hash IN"
+          + " (:sourceHashes)";
+
+  private static final String SAVE_TRANSLATIONS_QUERY_PREFIX =
+      "INSERT INTO word_translation (source_language, target_language, source_hash, source_text, "
+          + "translated_text, created_at) VALUES ";
+
+  private static final String SAVE_TRANSLATIONS_QUERY_SUFFIX = " ON CONFLICT DO NOTHING";
+
+  // PostgreSQL allows at most 65535 parameters per query, bulk requests may have more words
+  private static final int MAX_WORDS_PER_QUERY = 1000;
+
+  private final JdbcClient jdbcClient;
+
+  /**
+   * Finds translations of {@code words} with a query per {@code MAX_WORDS_PER_QUERY} words.
+   *
+   * @return map from word to its translation; words without translation are absent
+   */
+  public Map<String, String> findTranslations(
+      final String sourceLanguage, final String targetLanguage, final Collection<String> words) {
+    if (words.isEmpty()) {
+      return Map.of();
+    }
+
+    log.debug("Trying to find translations of {} words in DB", words.size());
+
+    final var translations = new HashMap<String, String>();
+    final var sourceHashes = words.stream().map(Hashes::sha256).toList();
+
+    for (var from = 0; from < sourceHashes.size(); from += MAX_WORDS_PER_QUERY) {
+      jdbcClient
+          .sql(FIND_TRANSLATIONS_QUERY)
+          .param("sourceLanguage", sourceLanguage)
+          .param("targetLanguage", targetLanguage)
+          .param(
+              "sourceHashes",
+              sourceHashes.subList(from, Math.min(from + MAX_WORDS_PER_QUERY, sourceHashes.size())))
+          .query(
+              resultSet -> {
+                // source_text is compared to rule out hash collisions
+                final var sourceText = resultSet.getString("source_text");
+
+                if (words.contains(sourceText)) {
+                  translations.put(sourceText, resultSet.getString("translated_text"));
+                }
+              });
+    }
+
+    return translations;
+  }
+
+  /**
+   * Saves {@code translations} with a multi-row INSERT per {@code MAX_WORDS_PER_QUERY} words;
+   * already existing translations are left intact.
+   *
+   * @param translations map from word to its translation
+   */
+  @Transactional
+  public void saveTranslations(
+      final String sourceLanguage,
+      final String targetLanguage,
+      final Map<String, String> translations,
+      final LocalDateTime createdAt) {
+    if (translations.isEmpty()) {
+      return;
+    }
+
+    log.debug("Trying to insert {} word translations into DB", translations.size());
+
+    // concurrent requests insert the same words in the same order, so they can't deadlock
+    final var rows =
+        translations.entrySet().stream()
+            .map(translation -> Map.entry(Hashes.sha256(translation.getKey()), translation))
+            .sorted((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()))
+            .toList();
+
+    for (var from = 0; from < rows.size(); from += MAX_WORDS_PER_QUERY) {
+      final var chunk = rows.subList(from, Math.min(from + MAX_WORDS_PER_QUERY, rows.size()));
+      final var query = new StringBuilder(SAVE_TRANSLATIONS_QUERY_PREFIX);
+      final var params = new HashMap<String, Object>(chunk.size() * 3 + 3);
+
+      for (var i = 0; i < chunk.size(); ++i) {
+        if (i > 0) {
+          query.append(", ");
+        }
+
+        query
+            .append("(:sourceLanguage, :targetLanguage, :sourceHash")
+            .append(i)
+            .append(", :sourceText")
+            .append(i)
+            .append(", :translatedText")
+            .append(i)
+            .append(", :createdAt)");
+
+        params.put("sourceHash" + i, chunk.get(i).getKey());
+        params.put("sourceText" + i, chunk.get(i).getValue().getKey());
+        params.put("translatedText" + i, chunk.get(i).getValue().getValue());
+      }
+
+      params.put("sourceLanguage", sourceLanguage);
+      params.put("targetLanguage", targetLanguage);
+      params.put("createdAt", createdAt);
+
+      jdbcClient
+          .sql(query.append(SAVE_TRANSLATIONS_QUERY_SUFFIX).toString())
+          .params(params)
+          .update();
+    }
+  }
+}
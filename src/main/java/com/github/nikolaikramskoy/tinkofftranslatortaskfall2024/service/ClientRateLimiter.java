@@ -0,0 +1,77 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits translate requests of a single client (IP address), so one client can't take all upstream
+ * capacity.
+ *
+ * <p>Uses GCRA (generic cell rate algorithm), an equivalent of token bucket that keeps only one
+ * number per client: theoretical arrival time (TAT) of the next request. A request moves TAT {@code
+ * 1 / requestsPerSecond} forward and is allowed if TAT doesn't get more than {@code burst}
+ * intervals ahead of now; it's a single CAS without locks. Clients are kept in a Caffeine cache
+ * bounded by {@code maxClients}; a client idle for {@code burst} intervals has a full bucket, so
+ * its entry expires then, and an evicted client just starts with a full bucket.
+ */
+public class ClientRateLimiter {
+
+  private final long emissionIntervalNanos;
+  private final long burstNanos;
+
+  private final Cache<String, AtomicLong> theoreticalArrivalTimes;
+
+  public ClientRateLimiter(final double requestsPerSecond, final int burst, final long maxClients) {
+    if (requestsPerSecond <= 0) {
+      throw new IllegalArgumentException("requestsPerSecond <= 0");
+    }
+    if (burst <= 0) {
+      throw new IllegalArgumentException("burst <= 0");
+    }
+    if (maxClients <= 0) {
+      throw new IllegalArgumentException("maxClients <= 0");
+    }
+
+    this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+    this.burstNanos = emissionIntervalNanos * burst;
+    this.theoreticalArrivalTimes =
+        Caffeine.newBuilder()
+            .maximumSize(maxClients)
+            .expireAfterAccess(Duration.ofNanos(burstNanos))
+            .build();
+  }
+
+  /**
+   * Takes a request of {@code clientIp} into account if it's allowed.
+   *
+   * @return {@code 0} if request is allowed, otherwise nanoseconds after which it would be allowed
+   */
+  public long tryAcquire(final String clientIp) {
+    final var now = System.nanoTime();
+    final var theoreticalArrivalTime =
+        theoreticalArrivalTimes.get(clientIp, key -> new AtomicLong(now));
+
+    while (true) {
+      final var current = theoreticalArrivalTime.get();
+      final var next = Math.max(current, now) + emissionIntervalNanos;
+      final var aheadNanos = next - now - burstNanos;
+
+      if (aheadNanos > 0) {
+        return aheadNanos;
+      }
+      if (theoreticalArrivalTime.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * @return approximate number of tracked clients
+   */
+  public long getClientCount() {
+    return theoreticalArrivalTimes.estimatedSize();
+  }
+}
@@ -0,0 +1,22 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import java.time.Duration;
+
+/** Point in {@link System#nanoTime()} time by which translation must be finished. */
+public record Deadline(long deadlineNanos) {
+
+  public static Deadline after(final Duration timeout) {
+    return new Deadline(System.nanoTime() + timeout.toNanos());
+  }
+
+  /**
+   * @return nanoseconds left before the deadline, not negative
+   */
+  public long remainingNanos() {
+    return Math.max(0, deadlineNanos - System.nanoTime());
+  }
+
+  public boolean isExpired() {
+    return remainingNanos() == 0;
+  }
+}
@@ -0,0 +1,8 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+public enum ExpiredPartitionAction {
+  /** Partition is detached and kept as a standalone table, e.g. to be archived. */
+  DETACH,
+  /** Partition is dropped with all its records. */
+  DROP
+}
@@ -0,0 +1,53 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent computations of the same key: the first caller (leader) computes the value
+ * and all concurrent callers of the same key wait for the leader's result instead of computing it
+ * again.
+ *
+ * <p>The leader must eventually call {@link #complete} or {@link #fail}, otherwise waiters hang.
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  private final LongAdder joinedCount = new LongAdder();
+
+  /**
+   * @return new flight if there is no in-flight computation of {@code key} (caller is a leader),
+   *     otherwise the existing one
+   */
+  public Flight<V> join(final K key) {
+    final var future = new CompletableFuture<V>();
+    final var existing = inFlight.putIfAbsent(key, future);
+
+    if (existing != null) {
+      joinedCount.increment();
+
+      return new Flight<>(existing, false);
+    }
+
+    return new Flight<>(future, true);
+  }
+
+  public void complete(final K key, final Flight<V> flight, final V value) {
+    inFlight.remove(key, flight.future());
+    flight.future().complete(value);
+  }
+
+  public void fail(final K key, final Flight<V> flight, final Throwable cause) {
+    inFlight.remove(key, flight.future());
+    flight.future().completeExceptionally(cause);
+  }
+
+  /** Number of times a caller waited for another caller's computation instead of its own. */
+  public long getJoinedCount() {
+    return joinedCount.sum();
+  }
+
+  public record Flight<V>(CompletableFuture<V> future, boolean leader) {}
+}
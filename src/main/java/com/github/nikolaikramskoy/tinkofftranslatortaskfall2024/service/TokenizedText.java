@@ -0,0 +1,169 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Words of a text kept as offsets into the text itself. Everything between words (whitespace,
+ * punctuation, line breaks) is a separator that is copied as is when translated words are joined,
+ * so translated text keeps the layout of the original one.
+ *
+ * <p>Word is a run of letters, digits and combining marks. Apostrophe or hyphen between two such
+ * characters doesn't break the word, e.g. "don't" and "кто-то" are single words.
+ */
+public class TokenizedText {
+
+  private static final int[] NO_SPANS = new int[0];
+
+  private final String text;
+
+  // i-th word is text[spans[2 * i], spans[2 * i + 1])
+  private final int[] spans;
+  private final int wordCount;
+
+  private TokenizedText(final String text, final int[] spans, final int wordCount) {
+    this.text = text;
+    this.spans = spans;
+    this.wordCount = wordCount;
+  }
+
+  /**
+   * Finds words of {@code text} in a single pass over it.
+   *
+   * @param text must be not {@code null}
+   */
+  public static TokenizedText tokenize(final String text) {
+    if (text == null) {
+      throw new IllegalArgumentException("text == null");
+    }
+
+    final var length = text.length();
+
+    // words of natural languages are a few characters long, so it's rarely grown
+    var spans = length == 0 ? NO_SPANS : new int[2 * (length / 4 + 1)];
+    var wordCount = 0;
+    var wordStart = -1;
+
+    for (var i = 0; i < length; ) {
+      final var codePoint = text.codePointAt(i);
+      final var next = i + Character.charCount(codePoint);
+
+      if (isWordCodePoint(codePoint)) {
+        if (wordStart < 0) {
+          wordStart = i;
+        }
+      } else if (wordStart >= 0
+          && !(isConnector(codePoint)
+              && next < length
+              && isWordCodePoint(text.codePointAt(next)))) {
+        if (2 * wordCount == spans.length) {
+          spans = Arrays.copyOf(spans, 2 * spans.length);
+        }
+
+        spans[2 * wordCount] = wordStart;
+        spans[2 * wordCount + 1] = i;
+        ++wordCount;
+
+        wordStart = -1;
+      }
+
+      i = next;
+    }
+
+    if (wordStart >= 0) {
+      if (2 * wordCount == spans.length) {
+        spans = Arrays.copyOf(spans, spans.length + 2);
+      }
+
+      spans[2 * wordCount] = wordStart;
+      spans[2 * wordCount + 1] = length;
+      ++wordCount;
+    }
+
+    return new TokenizedText(text, spans, wordCount);
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public int getWordCount() {
+    return wordCount;
+  }
+
+  /**
+   * @return words in the order they appear in the text
+   */
+  public List<String> getWords() {
+    final var words = new String[wordCount];
+
+    for (var i = 0; i < wordCount; ++i) {
+      words[i] = text.substring(spans[2 * i], spans[2 * i + 1]);
+    }
+
+    return Arrays.asList(words);
+  }
+
+  /**
+   * Replaces every word of the text with its translation.
+   *
+   * @param translatedWords must have {@link #getWordCount()} elements
+   */
+  public String join(final String[] translatedWords) {
+    return join(0, wordCount, translatedWords);
+  }
+
+  /**
+   * Replaces words {@code [fromWord, toWord)} of the text with their translations. Result starts
+   * with the separator before {@code fromWord}, and if {@code toWord} is the last word, ends with
+   * the separator after it, so joined consecutive ranges make the whole translated text.
+   *
+   * @param translatedWords translations of words {@code [fromWord, toWord)}
+   */
+  public String join(final int fromWord, final int toWord, final String[] translatedWords) {
+    if (fromWord < 0 || fromWord > toWord || toWord > wordCount) {
+      throw new IllegalArgumentException(
+          "fromWord < 0 || fromWord > toWord || toWord > getWordCount()");
+    }
+    if (translatedWords.length != toWord - fromWord) {
+      throw new IllegalArgumentException("translatedWords.length != toWord - fromWord");
+    }
+
+    final var to = toWord == wordCount ? text.length() : separatorStart(toWord);
+    // exact length: separators of the range are taken as is, words are replaced
+    var capacity = to - separatorStart(fromWord);
+
+    for (var i = fromWord; i < toWord; ++i) {
+      capacity += translatedWords[i - fromWord].length() - (spans[2 * i + 1] - spans[2 * i]);
+    }
+
+    final var joined = new StringBuilder(capacity);
+
+    for (var i = fromWord; i < toWord; ++i) {
+      joined.append(text, separatorStart(i), spans[2 * i]).append(translatedWords[i - fromWord]);
+    }
+
+    // toString() copies the buffer once more, unlike String.join that fills the result in place;
+    // there is no public API to do the same with separators in between
+    return joined.append(text, separatorStart(toWord), to).toString();
+  }
+
+  // separator before i-th word (or the trailing one if i == wordCount) starts after previous word
+  private int separatorStart(final int i) {
+    return i == 0 ? 0 : spans[2 * i - 1];
+  }
+
+  private static boolean isWordCodePoint(final int codePoint) {
+    if (Character.isLetterOrDigit(codePoint)) {
+      return true;
+    }
+
+    final var type = Character.getType(codePoint);
+
+    return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+  }
+
+  private static boolean isConnector(final int codePoint) {
+    return codePoint == '\'' || codePoint == '’' || codePoint == '-';
+  }
+}
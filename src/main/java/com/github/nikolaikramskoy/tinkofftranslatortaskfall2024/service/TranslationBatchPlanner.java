@@ -0,0 +1,75 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs words into as few Yandex Translate API translate requests as possible while respecting
+ * per-request limits on the number of texts and on their total length.
+ */
+public class TranslationBatchPlanner {
+
+  private final int maxTextsPerRequest;
+  private final int maxCharactersPerRequest;
+
+  public TranslationBatchPlanner(final int maxTextsPerRequest, final int maxCharactersPerRequest) {
+    if (maxTextsPerRequest <= 0) {
+      throw new IllegalArgumentException("maxTextsPerRequest <= 0");
+    }
+    if (maxCharactersPerRequest <= 0) {
+      throw new IllegalArgumentException("maxCharactersPerRequest <= 0");
+    }
+
+    this.maxTextsPerRequest = maxTextsPerRequest;
+    this.maxCharactersPerRequest = maxCharactersPerRequest;
+  }
+
+  /**
+   * Splits {@code words} into consecutive batches, each of them fits into single translate request.
+   *
+   * <p>Word that is longer than {@code maxCharactersPerRequest} is placed in a batch of its own, so
+   * Yandex Translate API will report the error for it.
+   *
+   * @param words must be not {@code null}
+   * @return batches in the same order as {@code words}
+   */
+  public List<TranslationBatch> plan(final List<String> words) {
+    if (words == null) {
+      throw new IllegalArgumentException("words == null");
+    }
+
+    final var batches = new ArrayList<TranslationBatch>();
+
+    var fromIndex = 0;
+    var batchCharacters = 0;
+
+    for (var i = 0; i < words.size(); ++i) {
+      final var wordCharacters = words.get(i).length();
+
+      if (i > fromIndex
+          && (i - fromIndex == maxTextsPerRequest
+              || batchCharacters + wordCharacters > maxCharactersPerRequest)) {
+        batches.add(new TranslationBatch(fromIndex, i));
+
+        fromIndex = i;
+        batchCharacters = 0;
+      }
+
+      batchCharacters += wordCharacters;
+    }
+
+    if (fromIndex < words.size()) {
+      batches.add(new TranslationBatch(fromIndex, words.size()));
+    }
+
+    return batches;
+  }
+
+  /** Half-open range {@code [fromIndex, toIndex)} of words that are translated together. */
+  public record TranslationBatch(int fromIndex, int toIndex) {
+
+    public int size() {
+      return toIndex - fromIndex;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslationDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslationsDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationError;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.TranslationCursor;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.TranslationFilter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationHistoryRepository;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Translation history for support: pages of translations from newest to oldest and export of all
+ * translations that match a filter.
+ */
+@Service
+@Slf4j
+public class TranslationHistoryService {
+
+  private static final Pattern IPV4_PATTERN =
+      Pattern.compile(
+          "((25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)");
+
+  private static final char CURSOR_SEPARATOR = '_';
+
+  private final TranslationHistoryRepository translationHistoryRepository;
+
+  private final int exportPageSize;
+
+  public TranslationHistoryService(
+      final TranslationHistoryRepository translationHistoryRepository,
+      @Value("${translator.translation-history.export-page-size}") final int exportPageSize) {
+    if (exportPageSize <= 0) {
+      throw new IllegalArgumentException("exportPageSize <= 0");
+    }
+
+    this.translationHistoryRepository = translationHistoryRepository;
+    this.exportPageSize = exportPageSize;
+  }
+
+  /**
+   * @param cursor {@code nextCursor} of the previous page, {@code null} for the first page
+   */
+  public TranslationsDtoResponse findTranslations(
+      final TranslationFilter filter, final String cursor, final int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit <= 0");
+    }
+
+    checkFilter(filter);
+
+    // one more translation tells if there is the next page
+    final var translations =
+        translationHistoryRepository.findTranslations(
+            filter, cursor == null ? null : decodeCursor(cursor), limit + 1);
+
+    if (translations.size() <= limit) {
+      return new TranslationsDtoResponse(
+          translations.stream().map(TranslationHistoryService::toDto).toList(), null);
+    }
+
+    final var page = translations.subList(0, limit);
+    final var last = page.get(limit - 1);
+
+    return new TranslationsDtoResponse(
+        page.stream().map(TranslationHistoryService::toDto).toList(),
+        encodeCursor(new TranslationCursor(last.timestamp(), last.id())));
+  }
+
+  /**
+   * Passes every translation that matches {@code filter} to {@code consumer} from newest to oldest.
+   * Translations are read by {@code exportPageSize} at a time, every page with its own short query
+   * that continues after the last translation of the previous one, so a slow client holds neither a
+   * DB connection nor a transaction with its locks between pages.
+   */
+  public void exportTranslations(
+      final TranslationFilter filter, final Consumer<TranslationDto> consumer) {
+    checkFilter(filter);
+
+    TranslationCursor after = null;
+
+    while (true) {
+      final var page = translationHistoryRepository.findTranslations(filter, after, exportPageSize);
+
+      page.forEach(translation -> consumer.accept(toDto(translation)));
+
+      if (page.size() < exportPageSize) {
+        return;
+      }
+
+      final var last = page.get(page.size() - 1);
+      after = new TranslationCursor(last.timestamp(), last.id());
+    }
+  }
+
+  /**
+   * @throws ApplicationException if {@code filter} can't match any translation because of invalid
+   *     values
+   */
+  public void checkFilter(final TranslationFilter filter) {
+    if (filter.clientIp() != null && !isIpAddress(filter.clientIp())) {
+      throw new ApplicationException(ApplicationError.INVALID_CLIENT_IP);
+    }
+  }
+
+  // InetAddress would look up a host name, so only IPv6 literal (in brackets) is parsed by it
+  private static boolean isIpAddress(final String ip) {
+    if (ip.indexOf(':') < 0) {
+      return IPV4_PATTERN.matcher(ip).matches();
+    }
+
+    try {
+      InetAddress.getByName('[' + ip + ']');
+
+      return true;
+    } catch (final UnknownHostException e) {
+      return false;
+    }
+  }
+
+  // cursor is opaque for clients, so its format may change without changes of the API
+  private static String encodeCursor(final TranslationCursor cursor) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(
+            (cursor.timestamp().toString() + CURSOR_SEPARATOR + cursor.id())
+                .getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static TranslationCursor decodeCursor(final String cursor) {
+    try {
+      final var decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      final var separatorIndex = decoded.indexOf(CURSOR_SEPARATOR);
+
+      return new TranslationCursor(
+          LocalDateTime.parse(decoded.substring(0, separatorIndex)),
+          UUID.fromString(decoded.substring(separatorIndex + 1)));
+    } catch (final IllegalArgumentException
+        | IndexOutOfBoundsException
+        | DateTimeParseException e) {
+      log.debug("invalid cursor {}", cursor, e);
+
+      throw new ApplicationException(ApplicationError.INVALID_CURSOR);
+    }
+  }
+
+  private static TranslationDto toDto(final Translation translation) {
+    return new TranslationDto(
+        translation.id(),
+        translation.clientIp(),
+        translation.timestamp(),
+        translation.sourceLanguage(),
+        translation.targetLanguage(),
+        translation.text(),
+        translation.translatedText());
+  }
+}
@@ -0,0 +1,153 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationPartitionRepository;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.HashSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Keeps daily partitions of {@code translation} table: creates partitions for today and {@code
+ * futurePartitions} next days in advance, and detaches or drops partitions of days older than
+ * {@code retentionDays}, so retention is a metadata operation instead of a huge DELETE. Texts that
+ * were referenced only by dropped partitions are deleted once all expired partitions are dropped,
+ * {@code textDeleteBatchSize} texts per statement, so no DELETE holds locks and WAL of all of them.
+ *
+ * <p>Detached partitions keep referencing their texts, so texts aren't deleted at all while any
+ * detached partition is still in the schema under its name, even after switching to {@link
+ * ExpiredPartitionAction#DROP}: such archives must be dropped, renamed or moved to another schema
+ * first, and then texts referenced only by them are deleted too.
+ */
+@Slf4j
+public class TranslationPartitionMaintainer {
+
+  private final Clock clock;
+
+  private final int futurePartitions;
+  private final int retentionDays;
+  private final ExpiredPartitionAction expiredPartitionAction;
+  private final int textDeleteBatchSize;
+
+  private final TranslationPartitionRepository translationPartitionRepository;
+
+  public TranslationPartitionMaintainer(
+      final Clock clock,
+      final int futurePartitions,
+      final int retentionDays,
+      final ExpiredPartitionAction expiredPartitionAction,
+      final int textDeleteBatchSize,
+      final TranslationPartitionRepository translationPartitionRepository) {
+    if (futurePartitions < 0) {
+      throw new IllegalArgumentException("futurePartitions < 0");
+    }
+    if (retentionDays <= 0) {
+      throw new IllegalArgumentException("retentionDays <= 0");
+    }
+    if (textDeleteBatchSize <= 0) {
+      throw new IllegalArgumentException("textDeleteBatchSize <= 0");
+    }
+
+    this.clock = clock;
+    this.futurePartitions = futurePartitions;
+    this.retentionDays = retentionDays;
+    this.expiredPartitionAction = expiredPartitionAction;
+    this.textDeleteBatchSize = textDeleteBatchSize;
+    this.translationPartitionRepository = translationPartitionRepository;
+  }
+
+  // runs right after application start and then periodically
+  @Scheduled(fixedDelayString = "${translator.translation-partitions.maintenance-interval}")
+  public void maintain() {
+    final var today = LocalDate.now(clock);
+    final var partitionDays = new HashSet<>(translationPartitionRepository.findPartitionDays());
+
+    for (var day = today; !day.isAfter(today.plusDays(futurePartitions)); day = day.plusDays(1)) {
+      if (!partitionDays.contains(day)) {
+        createPartition(day);
+      }
+    }
+
+    final var oldestRetainedDay = today.minusDays(retentionDays);
+
+    final var expiredPartitionDays =
+        partitionDays.stream().filter(day -> day.isBefore(oldestRetainedDay)).sorted().toList();
+    var allExpiredPartitionsRemoved = true;
+
+    for (final var day : expiredPartitionDays) {
+      allExpiredPartitionsRemoved &= removeExpiredPartition(day);
+    }
+
+    // texts of a partition that failed to drop are still referenced, they are deleted on one of
+    // the next runs once it's dropped
+    if (expiredPartitionAction == ExpiredPartitionAction.DROP && allExpiredPartitionsRemoved) {
+      deleteUnusedTexts(oldestRetainedDay);
+    }
+  }
+
+  private void createPartition(final LocalDate day) {
+    try {
+      translationPartitionRepository.createPartition(day);
+
+      log.info("created translation partition of {}", day);
+    } catch (final DataAccessException e) {
+      // e.g. default partition already has records of this day, they stay there
+      log.error("failed to create translation partition of {}", day, e);
+    }
+  }
+
+  /**
+   * @return {@code true} if partition of {@code day} was removed
+   */
+  private boolean removeExpiredPartition(final LocalDate day) {
+    try {
+      switch (expiredPartitionAction) {
+        case DETACH -> translationPartitionRepository.detachPartition(day);
+        case DROP -> translationPartitionRepository.dropPartition(day);
+      }
+
+      log.info("{} expired translation partition of {}", expiredPartitionAction, day);
+
+      return true;
+    } catch (final DataAccessException e) {
+      log.error("failed to {} expired translation partition of {}", expiredPartitionAction, day, e);
+
+      return false;
+    }
+  }
+
+  private void deleteUnusedTexts(final LocalDate oldestRetainedDay) {
+    var deletedTexts = 0L;
+
+    try {
+      final var detachedPartitionDays = translationPartitionRepository.findDetachedPartitionDays();
+
+      if (!detachedPartitionDays.isEmpty()) {
+        log.warn(
+            "translation texts aren't deleted, {} detached translation partitions may reference"
+                + " them, e.g. of {}",
+            detachedPartitionDays.size(),
+            detachedPartitionDays.getFirst());
+
+        return;
+      }
+
+      int deletedBatchTexts;
+
+      // every batch is a transaction of its own, so writers wait for one batch at most
+      do {
+        deletedBatchTexts =
+            translationPartitionRepository.deleteTextsUnusedSince(
+                oldestRetainedDay, textDeleteBatchSize);
+        deletedTexts += deletedBatchTexts;
+      } while (deletedBatchTexts == textDeleteBatchSize);
+    } catch (final DataAccessException e) {
+      log.error("failed to delete translation texts unused since {}", oldestRetainedDay, e);
+    }
+
+    if (deletedTexts > 0) {
+      log.info("deleted {} translation texts unused since {}", deletedTexts, oldestRetainedDay);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency ({@code translator.translation.requests}) and number of words ({@code
+ * translator.translation.words}) of translate requests tagged with {@code operation} and {@code
+ * language_pair}.
+ *
+ * <p>Every pair of available languages is a valid tag value, so only the first {@code
+ * maxLanguagePairs} seen pairs get their own tag value and the rest are tagged as {@code other};
+ * under concurrent requests a few more pairs may slip in. Both meters publish percentile
+ * histograms, so percentiles can be aggregated across instances in Prometheus.
+ */
+public class TranslationRequestMeters {
+
+  public static final String OTHER_LANGUAGE_PAIR = "other";
+
+  private final MeterRegistry meterRegistry;
+
+  private final int maxLanguagePairs;
+
+  private final Map<String, Boolean> languagePairs = new ConcurrentHashMap<>();
+
+  private final Map<MetersKey, Meters> meters = new ConcurrentHashMap<>();
+
+  public TranslationRequestMeters(final MeterRegistry meterRegistry, final int maxLanguagePairs) {
+    if (maxLanguagePairs < 0) {
+      throw new IllegalArgumentException("maxLanguagePairs < 0");
+    }
+
+    this.meterRegistry = meterRegistry;
+    this.maxLanguagePairs = maxLanguagePairs;
+  }
+
+  public void recordWords(
+      final String operation,
+      final String sourceLanguage,
+      final String targetLanguage,
+      final int words) {
+    getMeters(operation, sourceLanguage, targetLanguage).words().record(words);
+  }
+
+  public void recordLatency(
+      final String operation,
+      final String sourceLanguage,
+      final String targetLanguage,
+      final long latencyNanos) {
+    getMeters(operation, sourceLanguage, targetLanguage)
+        .latency()
+        .record(latencyNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return {@code sourceLanguage-targetLanguage} or {@link #OTHER_LANGUAGE_PAIR}
+   */
+  public String getLanguagePairTag(final String sourceLanguage, final String targetLanguage) {
+    final var languagePair = sourceLanguage + '-' + targetLanguage;
+
+    if (languagePairs.containsKey(languagePair)) {
+      return languagePair;
+    }
+    if (languagePairs.size() >= maxLanguagePairs) {
+      return OTHER_LANGUAGE_PAIR;
+    }
+
+    languagePairs.putIfAbsent(languagePair, Boolean.TRUE);
+
+    return languagePair;
+  }
+
+  private Meters getMeters(
+      final String operation, final String sourceLanguage, final String targetLanguage) {
+    return meters.computeIfAbsent(
+        new MetersKey(operation, getLanguagePairTag(sourceLanguage, targetLanguage)),
+        this::createMeters);
+  }
+
+  private Meters createMeters(final MetersKey key) {
+    return new Meters(
+        Timer.builder("translator.translation.requests")
+            .description("Latency of translate requests")
+            .tag("operation", key.operation())
+            .tag("language_pair", key.languagePair())
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .register(meterRegistry),
+        DistributionSummary.builder("translator.translation.words")
+            .description("Words in translate requests")
+            .tag("operation", key.operation())
+            .tag("language_pair", key.languagePair())
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+  }
+
+  private record MetersKey(String operation, String languagePair) {}
+
+  private record Meters(Timer latency, DistributionSummary words) {}
+}
@@ -1,43 +1,56 @@
 package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
 
-import static org.springframework.http.HttpHeaders.AUTHORIZATION;
-
-import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.EmptyDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.AvailableLanguagesCache;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.WordTranslationCache;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.WordTranslationKey;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.client.YandexTranslateApiClient;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.BulkTranslateTextDtoRequest;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.TranslateTextDtoRequest;
-import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.yandextranslate.YandexTranslateTranslateDtoRequest;
-import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.AvailableLanguageDto;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.AvailableLanguagesDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.BulkTranslateTextDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.BulkTranslationDto;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslateTextDtoResponse;
-import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateListLanguagesResponse;
-import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslateDtoResponse;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationError;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.YandexApiException;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationRepository;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.WordTranslationRepository;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.SingleFlight.Flight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.StringJoiner;
-import java.util.UUID;
-import java.util.concurrent.Callable;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.support.TransactionTemplate;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClientException;
 
 @Service
 @Slf4j
@@ -45,124 +58,437 @@ public class TranslationService {
 
   private final Clock clock;
 
+  private final UuidV7Generator uuidV7Generator;
+
   private final ExecutorService yandexTranslateApiTranslateExecutorService;
 
-  private final URI yandexTranslateApiListLanguagesUri;
-  private final URI yandexTranslateApiTranslateUri;
+  private final UpstreamConcurrencyLimiter upstreamConcurrencyLimiter;
+
+  private final UpstreamHedger upstreamHedger;
+
+  private final UpstreamCircuitBreaker upstreamCircuitBreaker;
+
+  private final UpstreamQuotaLimiter upstreamQuotaLimiter;
+
+  private final Duration translationDeadline;
+
+  private final YandexTranslateApiClient yandexTranslateApiClient;
+
+  private final AvailableLanguagesCache availableLanguagesCache;
+
+  private final TranslationWriteBehindQueue translationWriteBehindQueue;
+
+  private final TranslationBatchPlanner translationBatchPlanner;
+
+  private final WordTranslationCache wordTranslationCache;
+
+  private final SingleFlight<WordTranslationKey, String> wordTranslationFlights;
+
+  private final WordTranslationRepository wordTranslationRepository;
 
-  private final String yandexApiAuthorizationHeaderValue;
+  private final ExecutorService translationMemoryWriterExecutorService;
 
-  private final RestTemplate restTemplate;
+  private final ExecutorService translationStreamExecutorService;
 
-  private final TransactionTemplate transactionTemplate;
+  private final int streamSegmentWords;
+  private final int streamSegmentsInFlight;
 
-  private final TranslationRepository translationRepository;
+  private final Counter duplicateWordsCounter;
+
+  private final TranslationRequestMeters translationRequestMeters;
+
+  private final Timer wordTranslationInsertTimer;
 
   public TranslationService(
       final Clock clock,
+      final UuidV7Generator uuidV7Generator,
       final ExecutorService yandexTranslateApiTranslateExecutorService,
-      final String yandexTranslateApiUrl,
-      final String yandexApiKey,
-      final RestTemplate restTemplate,
-      final TransactionTemplate transactionTemplate,
-      final TranslationRepository translationRepository)
-      throws URISyntaxException {
+      final UpstreamConcurrencyLimiter upstreamConcurrencyLimiter,
+      final UpstreamHedger upstreamHedger,
+      final UpstreamCircuitBreaker upstreamCircuitBreaker,
+      final UpstreamQuotaLimiter upstreamQuotaLimiter,
+      @Value("${translator.yandex-translate-api.deadline}") final Duration translationDeadline,
+      final YandexTranslateApiClient yandexTranslateApiClient,
+      final AvailableLanguagesCache availableLanguagesCache,
+      final TranslationWriteBehindQueue translationWriteBehindQueue,
+      final TranslationBatchPlanner translationBatchPlanner,
+      final WordTranslationCache wordTranslationCache,
+      final SingleFlight<WordTranslationKey, String> wordTranslationFlights,
+      final WordTranslationRepository wordTranslationRepository,
+      final ExecutorService translationMemoryWriterExecutorService,
+      final ExecutorService translationStreamExecutorService,
+      @Value("${translator.streaming.segment-words}") final int streamSegmentWords,
+      @Value("${translator.streaming.segments-in-flight}") final int streamSegmentsInFlight,
+      final TranslationRequestMeters translationRequestMeters,
+      final MeterRegistry meterRegistry) {
+    if (streamSegmentWords <= 0) {
+      throw new IllegalArgumentException("streamSegmentWords <= 0");
+    }
+    if (streamSegmentsInFlight <= 0) {
+      throw new IllegalArgumentException("streamSegmentsInFlight <= 0");
+    }
+
     this.clock = clock;
+    this.uuidV7Generator = uuidV7Generator;
     this.yandexTranslateApiTranslateExecutorService = yandexTranslateApiTranslateExecutorService;
-    this.yandexTranslateApiListLanguagesUri = new URI(yandexTranslateApiUrl + "/languages");
-    this.yandexTranslateApiTranslateUri = new URI(yandexTranslateApiUrl + "/translate");
-    this.yandexApiAuthorizationHeaderValue = "Api-Key " + yandexApiKey;
-    this.restTemplate = restTemplate;
-    this.transactionTemplate = transactionTemplate;
-    this.translationRepository = translationRepository;
+    this.upstreamConcurrencyLimiter = upstreamConcurrencyLimiter;
+    this.upstreamHedger = upstreamHedger;
+    this.upstreamCircuitBreaker = upstreamCircuitBreaker;
+    this.upstreamQuotaLimiter = upstreamQuotaLimiter;
+    this.translationDeadline = translationDeadline;
+    this.yandexTranslateApiClient = yandexTranslateApiClient;
+    this.availableLanguagesCache = availableLanguagesCache;
+    this.translationWriteBehindQueue = translationWriteBehindQueue;
+    this.translationBatchPlanner = translationBatchPlanner;
+    this.wordTranslationCache = wordTranslationCache;
+    this.wordTranslationFlights = wordTranslationFlights;
+    this.wordTranslationRepository = wordTranslationRepository;
+    this.translationMemoryWriterExecutorService = translationMemoryWriterExecutorService;
+    this.translationStreamExecutorService = translationStreamExecutorService;
+    this.streamSegmentWords = streamSegmentWords;
+    this.streamSegmentsInFlight = streamSegmentsInFlight;
+    this.duplicateWordsCounter =
+        Counter.builder("translator.translation.duplicate.words")
+            .description("Repeated words of translate requests that weren't translated again")
+            .register(meterRegistry);
+    this.translationRequestMeters = translationRequestMeters;
+    this.wordTranslationInsertTimer =
+        Timer.builder("translator.db.inserts")
+            .description("Latency of DB inserts")
+            .tag("table", "word_translation")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
   }
 
   /**
-   * Fetches languages available for translation from Yandex Translate API.
+   * Returns languages available for translation in Yandex Translate API; they are cached and
+   * periodically refreshed in the background.
    *
    * @return {@link AvailableLanguagesDtoResponse}
    * @throws YandexApiException in case of 4xx or 5xx HTTP status codes from Yandex Translate API
+   *     when languages were never loaded before
    */
   public AvailableLanguagesDtoResponse getAvailableLanguages() {
-    log.debug("query Yandex Translate API for available languages");
-
-    // maybe it's better to cache this response from Yandex API
-    // as available languages for translation don't change frequently
-    // (e.g. at application start)
-
-    // https://yandex.cloud/ru/docs/translate/api-ref/Translation/listLanguages
-    final var response =
-        restTemplate.postForEntity(
-            yandexTranslateApiListLanguagesUri,
-            new HttpEntity<>(new EmptyDto(), createBasicHttpHeadersForYandexApi()),
-            YandexTranslateListLanguagesResponse.class);
-
-    if (!response.getStatusCode().isSameCodeAs(HttpStatus.OK)) {
-      throw new YandexApiException(response.getStatusCode(), response.getBody().message());
-    }
-
-    return new AvailableLanguagesDtoResponse(
-        response.getBody().languages().stream()
-            .map(language -> new AvailableLanguageDto(language.code(), language.name()))
-            .toList());
+    return new AvailableLanguagesDtoResponse(availableLanguagesCache.getAvailableLanguages());
   }
 
   /**
    * Translates {@code text} in {@code sourceLanguage} to {@code targetLanguage} using data from
-   * {@code request} and saves information about translation in {@link TranslationRepository}.
+   * {@code request} and asynchronously saves information about translation in {@link
+   * TranslationRepository}.
    *
    * @param request must be not {@code null}; it's {@code text}, {@code sourceLanguage} and {@code
    *     targetLanguage} must be not blank (null or size == 0); {@code sourceLanguage} and {@code
    *     targetLanguage} must be available for translation in Yandex Translate API
    * @param clientIp must be not {@code null}; must be a valid IP address
    * @return {@link TranslateTextDtoResponse}
+   * @throws ApplicationException with {@link ApplicationError#UNAVAILABLE_LANGUAGE} if {@code
+   *     sourceLanguage} or {@code targetLanguage} isn't available for translation, with {@link
+   *     ApplicationError#DEADLINE_EXCEEDED} if translation isn't finished within {@code
+   *     translationDeadline}
    * @throws YandexApiException in case of 4xx or 5xx HTTP status codes from Yandex Translate API
    */
   public TranslateTextDtoResponse translateText(
       final TranslateTextDtoRequest request, final String clientIp) {
     checkArgumentsTranslateText(request, clientIp);
+    checkLanguagesAvailable(request);
 
+    // text may be large, so it isn't logged
     log.info(
-        "translate text {} for client with IP {} using Yandex Translate API", request, clientIp);
+        "translate text of {} characters from {} to {} for client with IP {} using Yandex"
+            + " Translate API",
+        request.text().length(),
+        request.sourceLanguage(),
+        request.targetLanguage(),
+        clientIp);
 
-    final var translatedText = translateText(request);
-    final var timestamp = LocalDateTime.now(clock);
+    final var start = System.nanoTime();
+    final var tokenizedText = TokenizedText.tokenize(request.text());
+    final var words = tokenizedText.getWords();
+
+    translationRequestMeters.recordWords(
+        "text", request.sourceLanguage(), request.targetLanguage(), words.size());
+
+    final var translatedText =
+        tokenizedText.join(
+            translateEachWord(
+                request,
+                words,
+                Deadline.after(translationDeadline),
+                upstreamConcurrencyLimiter.newRequestPermits()));
 
-    // It's possible to save Translation asynchronously in worker (virtual)
-    // threads (I can return answer to client without information about
-    // insert in Repository) and return translatedText after submitting this task.
-    transactionTemplate.executeWithoutResult(
-        transactionStatus -> {
-          var translation =
-              new Translation(
-                  UUID.randomUUID(),
-                  clientIp,
-                  timestamp,
-                  request.sourceLanguage(),
-                  request.targetLanguage(),
-                  request.text(),
-                  translatedText);
-
-          // on successful update saveTranslation must return 1, if it's 0, then
-          // it's a rare case that generated random UUID exists in the table
-          while (translationRepository.saveTranslation(translation) == 0) {
-            translation =
-                new Translation(
-                    UUID.randomUUID(),
-                    clientIp,
-                    timestamp,
-                    request.sourceLanguage(),
-                    request.targetLanguage(),
-                    request.text(),
-                    translatedText);
-          }
-
-          log.info("successful insertion of Translation {} in the DB", translation.id());
-        });
+    translationRequestMeters.recordLatency(
+        "text", request.sourceLanguage(), request.targetLanguage(), System.nanoTime() - start);
+
+    saveTranslation(request, clientIp, translatedText);
 
     return new TranslateTextDtoResponse(translatedText);
   }
 
+  /**
+   * Same as {@link #translateText} but translates {@code text} in segments of {@code
+   * streamSegmentWords} words: up to {@code streamSegmentsInFlight} segments are translated
+   * concurrently and each of them is returned as soon as it and all previous segments are
+   * translated. Concatenation of returned {@code translatedText}s is the whole translated text.
+   *
+   * <p>Arguments and languages are checked before this method returns, translation starts right
+   * away. Returned stream must be closed: closing it before the end cancels pending segments.
+   * Information about translation is saved only when the last segment is returned.
+   *
+   * @throws ApplicationException with {@link ApplicationError#UNAVAILABLE_LANGUAGE} if {@code
+   *     sourceLanguage} or {@code targetLanguage} isn't available for translation
+   */
+  public Stream<TranslateTextDtoResponse> translateTextStream(
+      final TranslateTextDtoRequest request, final String clientIp) {
+    checkArgumentsTranslateText(request, clientIp);
+    checkLanguagesAvailable(request);
+
+    log.info(
+        "translate text of {} characters from {} to {} for client with IP {} using Yandex"
+            + " Translate API in segments",
+        request.text().length(),
+        request.sourceLanguage(),
+        request.targetLanguage(),
+        clientIp);
+
+    final var tokenizedText = TokenizedText.tokenize(request.text());
+
+    translationRequestMeters.recordWords(
+        "stream", request.sourceLanguage(), request.targetLanguage(), tokenizedText.getWordCount());
+
+    final var segments = new TranslatedSegments(request, clientIp, tokenizedText);
+
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(
+                segments, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(segments::cancel);
+  }
+
+  /**
+   * Translates every text of {@code request} from {@code sourceLanguage} to {@code targetLanguage}.
+   * Words of all texts are deduplicated and translated together, so they share Yandex Translate API
+   * calls, and information about all translations is saved in a single batch.
+   *
+   * <p>Blank text doesn't fail the whole request, its result contains an error instead. If shared
+   * translation fails because Yandex Translate API rejected some words, every text is translated on
+   * its own, so only texts whose words can't be translated get errors. Deadline, quota and
+   * unavailable Yandex Translate API fail the whole request, since every text would fail the same.
+   *
+   * @param request must be not {@code null}; it's {@code texts} must be not empty and have at most
+   *     {@link BulkTranslateTextDtoRequest#MAX_TEXTS} elements; it's {@code sourceLanguage} and
+   *     {@code targetLanguage} must be not blank and available for translation
+   * @param clientIp must be not {@code null}; must be a valid IP address
+   * @return results in the same order as {@code texts}
+   * @throws ApplicationException with {@link ApplicationError#UNAVAILABLE_LANGUAGE} if {@code
+   *     sourceLanguage} or {@code targetLanguage} isn't available for translation, or with another
+   *     {@link ApplicationError} if shared translation failed because of it
+   */
+  public BulkTranslateTextDtoResponse translateTexts(
+      final BulkTranslateTextDtoRequest request, final String clientIp) {
+    checkArgumentsTranslateTexts(request, clientIp);
+    checkLanguagesAvailable(request.sourceLanguage(), request.targetLanguage());
+
+    log.info(
+        "translate {} texts for client with IP {} using Yandex Translate API",
+        request.texts().size(),
+        clientIp);
+
+    final var start = System.nanoTime();
+    final var textRequests = new ArrayList<TranslateTextDtoRequest>();
+    final var tokenizedTexts = new ArrayList<TokenizedText>();
+    final var allWords = new ArrayList<String>();
+    // words of i-th text are allWords[wordOffsets[i], wordOffsets[i + 1])
+    final var wordOffsets = new int[request.texts().size() + 1];
+
+    for (var i = 0; i < request.texts().size(); ++i) {
+      final var text = request.texts().get(i);
+
+      if (text != null && !text.isBlank()) {
+        final var textRequest =
+            new TranslateTextDtoRequest(text, request.sourceLanguage(), request.targetLanguage());
+
+        final var tokenizedText = TokenizedText.tokenize(text);
+
+        textRequests.add(textRequest);
+        tokenizedTexts.add(tokenizedText);
+        allWords.addAll(tokenizedText.getWords());
+      } else {
+        textRequests.add(null);
+        tokenizedTexts.add(null);
+      }
+
+      wordOffsets[i + 1] = allWords.size();
+    }
+
+    translationRequestMeters.recordWords(
+        "bulk", request.sourceLanguage(), request.targetLanguage(), allWords.size());
+
+    final var translatedTexts =
+        translateTexts(
+            textRequests,
+            tokenizedTexts,
+            allWords,
+            wordOffsets,
+            Deadline.after(translationDeadline));
+
+    translationRequestMeters.recordLatency(
+        "bulk", request.sourceLanguage(), request.targetLanguage(), System.nanoTime() - start);
+    final var translations = new ArrayList<BulkTranslationDto>(textRequests.size());
+    final var translationRecords = new ArrayList<Translation>(textRequests.size());
+    final var timestamp = LocalDateTime.now(clock);
+
+    for (var i = 0; i < textRequests.size(); ++i) {
+      final var textRequest = textRequests.get(i);
+      final var translatedText = translatedTexts[i];
+
+      if (textRequest == null) {
+        translations.add(new BulkTranslationDto(null, new ErrorDto("text must not be blank")));
+      } else if (translatedText.error() != null) {
+        translations.add(new BulkTranslationDto(null, translatedText.error()));
+      } else {
+        translations.add(new BulkTranslationDto(translatedText.translatedText(), null));
+        translationRecords.add(
+            new Translation(
+                uuidV7Generator.generate(),
+                clientIp,
+                timestamp,
+                request.sourceLanguage(),
+                request.targetLanguage(),
+                textRequest.text(),
+                translatedText.translatedText()));
+      }
+    }
+
+    // the writer saves consecutive records together, in as few transactions as possible
+    translationRecords.forEach(translationWriteBehindQueue::enqueue);
+
+    return new BulkTranslateTextDtoResponse(translations);
+  }
+
+  private BulkTranslationDto[] translateTexts(
+      final List<TranslateTextDtoRequest> textRequests,
+      final List<TokenizedText> tokenizedTexts,
+      final List<String> allWords,
+      final int[] wordOffsets,
+      final Deadline deadline) {
+    final var translatedTexts = new BulkTranslationDto[textRequests.size()];
+    final var languageRequest = textRequests.stream().filter(Objects::nonNull).findFirst();
+
+    if (languageRequest.isEmpty()) {
+      return translatedTexts;
+    }
+
+    try {
+      final var translatedWords =
+          translateEachWord(
+              languageRequest.get(),
+              allWords,
+              deadline,
+              upstreamConcurrencyLimiter.newRequestPermits());
+
+      for (var i = 0; i < textRequests.size(); ++i) {
+        if (textRequests.get(i) != null) {
+          translatedTexts[i] =
+              new BulkTranslationDto(
+                  tokenizedTexts
+                      .get(i)
+                      .join(
+                          Arrays.copyOfRange(translatedWords, wordOffsets[i], wordOffsets[i + 1])),
+                  null);
+        }
+      }
+
+      return translatedTexts;
+    } catch (final YandexApiException | RestClientException e) {
+      // ApplicationException isn't caught: its deadline is expired or quota is exhausted
+      // or Yandex Translate API is unavailable, so texts would fail one by one as well
+      log.info("shared translation of texts failed, translating them one by one", e);
+    }
+
+    // words that were translated before the failure are in the cache now,
+    // so only texts with failed words call Yandex Translate API again
+    for (var i = 0; i < textRequests.size(); ++i) {
+      final var textRequest = textRequests.get(i);
+
+      if (textRequest == null) {
+        continue;
+      }
+
+      try {
+        translatedTexts[i] =
+            new BulkTranslationDto(
+                tokenizedTexts
+                    .get(i)
+                    .join(
+                        translateEachWord(
+                            textRequest,
+                            allWords.subList(wordOffsets[i], wordOffsets[i + 1]),
+                            deadline,
+                            upstreamConcurrencyLimiter.newRequestPermits())),
+                null);
+      } catch (final ApplicationException | YandexApiException | RestClientException e) {
+        translatedTexts[i] = new BulkTranslationDto(null, new ErrorDto(e.getMessage()));
+      }
+    }
+
+    return translatedTexts;
+  }
+
+  private void checkArgumentsTranslateTexts(
+      final BulkTranslateTextDtoRequest request, final String clientIp) {
+    if (request == null) {
+      throw new IllegalArgumentException("request == null");
+    }
+    if (request.texts() == null || request.texts().isEmpty()) {
+      throw new IllegalArgumentException("request.texts() == null || request.texts().isEmpty()");
+    }
+    if (request.texts().size() > BulkTranslateTextDtoRequest.MAX_TEXTS) {
+      throw new IllegalArgumentException(
+          "request.texts().size() > BulkTranslateTextDtoRequest.MAX_TEXTS");
+    }
+    if (request.sourceLanguage() == null || request.sourceLanguage().isEmpty()) {
+      throw new IllegalArgumentException(
+          "request.sourceLanguage() == null || request.sourceLanguage().isEmpty()");
+    }
+    if (request.targetLanguage() == null || request.targetLanguage().isEmpty()) {
+      throw new IllegalArgumentException(
+          "request.targetLanguage() == null || request.targetLanguage().isEmpty()");
+    }
+
+    if (clientIp == null) {
+      throw new IllegalArgumentException("clientIp == null");
+    }
+  }
+
+  private void checkLanguagesAvailable(final TranslateTextDtoRequest request) {
+    checkLanguagesAvailable(request.sourceLanguage(), request.targetLanguage());
+  }
+
+  private void checkLanguagesAvailable(final String sourceLanguage, final String targetLanguage) {
+    // it's cheaper to reject unknown languages before any translate request is sent
+    if (!availableLanguagesCache.isAvailable(sourceLanguage)
+        || !availableLanguagesCache.isAvailable(targetLanguage)) {
+      throw new ApplicationException(ApplicationError.UNAVAILABLE_LANGUAGE);
+    }
+  }
+
+  private void saveTranslation(
+      final TranslateTextDtoRequest request, final String clientIp, final String translatedText) {
+    final var timestamp = LocalDateTime.now(clock);
+
+    // response doesn't wait for DB, Translation is saved later by the background writer
+    translationWriteBehindQueue.enqueue(
+        new Translation(
+            uuidV7Generator.generate(),
+            clientIp,
+            timestamp,
+            request.sourceLanguage(),
+            request.targetLanguage(),
+            request.text(),
+            translatedText));
+  }
+
   private void checkArgumentsTranslateText(
       final TranslateTextDtoRequest request, final String clientIp) {
     if (request == null) {
@@ -185,37 +511,212 @@ public class TranslationService {
     }
   }
 
-  private HttpHeaders createBasicHttpHeadersForYandexApi() {
-    final var headers = new HttpHeaders();
+  /**
+   * @param requestPermits permits of the translate request, see {@link
+   *     UpstreamConcurrencyLimiter#newRequestPermits()}
+   * @return translations of {@code words} in the same order
+   */
+  private String[] translateEachWord(
+      final TranslateTextDtoRequest request,
+      final List<String> words,
+      final Deadline deadline,
+      final Semaphore requestPermits) {
+    // every distinct word is translated once, however many times it's repeated
+    final var distinctWordIndexes = new HashMap<String, Integer>();
+    final var distinctWords = new ArrayList<String>();
+    final var wordIndexes = new int[words.size()];
+
+    for (var i = 0; i < wordIndexes.length; ++i) {
+      wordIndexes[i] =
+          distinctWordIndexes.computeIfAbsent(
+              words.get(i),
+              word -> {
+                distinctWords.add(word);
+
+                return distinctWords.size() - 1;
+              });
+    }
+
+    duplicateWordsCounter.increment(wordIndexes.length - distinctWords.size());
+
+    final var translatedDistinctWords = new String[distinctWords.size()];
 
-    headers.setAcceptCharset(Collections.singletonList(StandardCharsets.UTF_8));
-    headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-    headers.set(AUTHORIZATION, yandexApiAuthorizationHeaderValue);
-    headers.setContentType(MediaType.APPLICATION_JSON);
+    // every step translates only words that previous steps couldn't translate
+    translateWithWordTranslationCache(request, distinctWords, translatedDistinctWords);
+    translateWithTranslationMemory(request, distinctWords, translatedDistinctWords);
+    translateWithYandexTranslateApi(
+        request, distinctWords, translatedDistinctWords, deadline, requestPermits);
 
-    return headers;
+    final var translatedWords = new String[wordIndexes.length];
+
+    for (var i = 0; i < wordIndexes.length; ++i) {
+      translatedWords[i] = translatedDistinctWords[wordIndexes[i]];
+    }
+
+    return translatedWords;
+  }
+
+  private void translateWithWordTranslationCache(
+      final TranslateTextDtoRequest request,
+      final List<String> words,
+      final String[] translatedWords) {
+    for (var i = 0; i < words.size(); ++i) {
+      translatedWords[i] =
+          wordTranslationCache.get(createWordTranslationKey(request, words.get(i)));
+    }
   }
 
-  private String translateText(final TranslateTextDtoRequest request) {
-    final var words = request.text().trim().split("\s+");
-    final var translationFutures =
-        new ArrayList<Future<ResponseEntity<YandexTranslateTranslateDtoResponse>>>(words.length);
+  private void translateWithTranslationMemory(
+      final TranslateTextDtoRequest request,
+      final List<String> words,
+      final String[] translatedWords) {
+    final var missingWords = new HashSet<String>();
+
+    for (var i = 0; i < words.size(); ++i) {
+      if (translatedWords[i] == null) {
+        missingWords.add(words.get(i));
+      }
+    }
+
+    if (missingWords.isEmpty()) {
+      return;
+    }
+
+    final Map<String, String> translations;
+
+    try {
+      translations =
+          wordTranslationRepository.findTranslations(
+              request.sourceLanguage(), request.targetLanguage(), missingWords);
+    } catch (final DataAccessException e) {
+      // translation memory is just a cache, so Yandex Translate API is still able to translate
+      log.warn("failed to query translation memory", e);
+
+      return;
+    }
+
+    for (var i = 0; i < words.size(); ++i) {
+      if (translatedWords[i] == null) {
+        translatedWords[i] = translations.get(words.get(i));
+      }
+    }
+
+    translations.forEach(
+        (word, translation) ->
+            wordTranslationCache.put(createWordTranslationKey(request, word), translation));
+  }
+
+  private void translateWithYandexTranslateApi(
+      final TranslateTextDtoRequest request,
+      final List<String> words,
+      final String[] translatedWords,
+      final Deadline deadline,
+      final Semaphore requestPermits) {
+    // concurrent requests with the same words share a single translation of each of them
+    final var flights = new HashMap<String, Flight<String>>();
+    final var leaderWords = new ArrayList<String>();
+
+    for (var i = 0; i < words.size(); ++i) {
+      final var word = words.get(i);
+
+      if (translatedWords[i] == null) {
+        final var flight = wordTranslationFlights.join(createWordTranslationKey(request, word));
+
+        flights.put(word, flight);
+
+        if (flight.leader()) {
+          leaderWords.add(word);
+        }
+      }
+    }
+
+    if (flights.isEmpty()) {
+      return;
+    }
+
+    try {
+      final var newTranslations =
+          translateLeaderWords(request, leaderWords, flights, deadline, requestPermits);
+
+      saveTranslationsInTranslationMemory(request, newTranslations);
+    } catch (final RuntimeException | Error e) {
+      // requests that wait for these words must fail too instead of hanging
+      for (final var word : leaderWords) {
+        wordTranslationFlights.fail(createWordTranslationKey(request, word), flights.get(word), e);
+      }
+
+      throw e;
+    }
+
+    for (var i = 0; i < words.size(); ++i) {
+      if (translatedWords[i] == null) {
+        translatedWords[i] = awaitFlight(flights.get(words.get(i)), deadline);
+      }
+    }
+  }
+
+  private Map<String, String> translateLeaderWords(
+      final TranslateTextDtoRequest request,
+      final List<String> leaderWords,
+      final Map<String, Flight<String>> flights,
+      final Deadline deadline,
+      final Semaphore requestPermits) {
+    final var batches = translationBatchPlanner.plan(leaderWords);
+    final var translationFutures = new ArrayList<Future<List<String>>>(batches.size());
+
+    for (final var batch : batches) {
+      final var batchWords = leaderWords.subList(batch.fromIndex(), batch.toIndex());
+      final var batchCharacters = batchWords.stream().mapToInt(String::length).sum();
+
+      try {
+        // waits until one of the previous calls of this request completes
+        if (!requestPermits.tryAcquire(deadline.remainingNanos(), TimeUnit.NANOSECONDS)) {
+          cancelFutures(translationFutures);
+
+          throw new ApplicationException(ApplicationError.DEADLINE_EXCEEDED);
+        }
+      } catch (final InterruptedException e) {
+        cancelFutures(translationFutures);
+
+        Thread.currentThread().interrupt();
+
+        throw new ApplicationException(ApplicationError.TIMEOUT);
+      }
 
-    for (var i = 0; i < words.length; ++i) {
       translationFutures.add(
           yandexTranslateApiTranslateExecutorService.submit(
-              createYandexTranslateTranslateCallableRequest(request, words[i])));
+              () -> {
+                try {
+                  return upstreamHedger.call(
+                      () ->
+                          yandexTranslateApiClient.translate(
+                              request.sourceLanguage(), request.targetLanguage(), batchWords),
+                      // every attempt of a hedged call passes circuit breaker, is
+                      // charged against quotas and takes its own upstream call slot
+                      sendCall ->
+                          upstreamCircuitBreaker.call(
+                              () ->
+                                  upstreamQuotaLimiter.call(
+                                      () -> upstreamConcurrencyLimiter.call(sendCall, deadline),
+                                      batchCharacters,
+                                      deadline)),
+                      deadline);
+                } finally {
+                  requestPermits.release();
+                }
+              }));
     }
 
-    final var translatedText = new StringJoiner(" ");
+    final var newTranslations = new HashMap<String, String>();
 
-    for (final var translationFuture : translationFutures) {
-      final ResponseEntity<YandexTranslateTranslateDtoResponse> response;
+    for (var i = 0; i < batches.size(); ++i) {
+      final var batch = batches.get(i);
+      final List<String> translations;
 
       try {
-        // Probably setting some timeout value would be better
-        // (it's possible to introduce via an env variable)
-        response = translationFuture.get();
+        // translations are returned in the same order as words were submitted
+        translations =
+            translationFutures.get(i).get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
       } catch (final InterruptedException e) {
         // maybe I should've try to wait more and then cancel the operations
         cancelFutures(translationFutures);
@@ -224,44 +725,200 @@ public class TranslationService {
         Thread.currentThread().interrupt();
 
         throw new ApplicationException(ApplicationError.TIMEOUT);
+      } catch (final TimeoutException e) {
+        // calls that are still running are interrupted, on virtual
+        // threads it aborts their blocking socket reads
+        cancelFutures(translationFutures);
+
+        throw new ApplicationException(ApplicationError.DEADLINE_EXCEEDED);
       } catch (final ExecutionException e) {
         cancelFutures(translationFutures);
 
-        throw new AssertionError("ExecutionException happened");
+        throw unwrapExecutionException(e);
       }
 
-      if (!response.getStatusCode().isSameCodeAs(HttpStatus.OK)) {
-        cancelFutures(translationFutures);
+      for (var j = 0; j < batch.size(); ++j) {
+        final var word = leaderWords.get(batch.fromIndex() + j);
+        final var translation = translations.get(j);
+        final var key = createWordTranslationKey(request, word);
 
-        throw new YandexApiException(response.getStatusCode(), response.getBody().message());
+        newTranslations.put(word, translation);
+        // translation is cached before the flight is completed, so
+        // requests that miss the flight find it in the cache
+        wordTranslationCache.put(key, translation);
+        wordTranslationFlights.complete(key, flights.get(word), translation);
       }
+    }
+
+    return newTranslations;
+  }
+
+  private String awaitFlight(final Flight<String> flight, final Deadline deadline) {
+    try {
+      return flight.future().get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      throw new ApplicationException(ApplicationError.TIMEOUT);
+    } catch (final TimeoutException e) {
+      throw new ApplicationException(ApplicationError.DEADLINE_EXCEEDED);
+    } catch (final ExecutionException e) {
+      throw unwrapExecutionException(e);
+    }
+  }
 
-      // I submit exactly one word, so I will get exactly one translated word
-      translatedText.add(response.getBody().translations().get(0).text());
+  // YandexApiException and RestClientException are handled by GlobalExceptionHandler
+  private RuntimeException unwrapExecutionException(final ExecutionException e) {
+    if (e.getCause() instanceof RuntimeException cause) {
+      return cause;
+    }
+    if (e.getCause() instanceof TimeoutException) {
+      return new ApplicationException(ApplicationError.DEADLINE_EXCEEDED);
     }
 
-    return translatedText.toString();
+    throw new AssertionError("ExecutionException happened", e.getCause());
   }
 
-  private Callable<ResponseEntity<YandexTranslateTranslateDtoResponse>>
-      createYandexTranslateTranslateCallableRequest(
-          final TranslateTextDtoRequest request, final String word) {
-    return () ->
-        // https://yandex.cloud/ru/docs/translate/api-ref/Translation/translate
-        restTemplate.postForEntity(
-            yandexTranslateApiTranslateUri,
-            new HttpEntity<>(
-                new YandexTranslateTranslateDtoRequest(
-                    request.sourceLanguage(),
-                    request.targetLanguage(),
-                    Collections.singletonList(word)),
-                createBasicHttpHeadersForYandexApi()),
-            YandexTranslateTranslateDtoResponse.class);
+  private WordTranslationKey createWordTranslationKey(
+      final TranslateTextDtoRequest request, final String word) {
+    return new WordTranslationKey(request.sourceLanguage(), request.targetLanguage(), word);
+  }
+
+  // response doesn't depend on translation memory, so it's updated asynchronously
+  private void saveTranslationsInTranslationMemory(
+      final TranslateTextDtoRequest request, final Map<String, String> translations) {
+    final var createdAt = LocalDateTime.now(clock);
+
+    try {
+      translationMemoryWriterExecutorService.execute(
+          () -> {
+            try {
+              wordTranslationInsertTimer.record(
+                  () ->
+                      wordTranslationRepository.saveTranslations(
+                          request.sourceLanguage(),
+                          request.targetLanguage(),
+                          translations,
+                          createdAt));
+            } catch (final DataAccessException e) {
+              log.warn("failed to save translations in translation memory", e);
+            }
+          });
+    } catch (final RejectedExecutionException e) {
+      log.warn(
+          "translation memory writer is overloaded, {} translations are dropped",
+          translations.size());
+    }
   }
 
   // It's best to cancel pending futures if any of them failed
-  private void cancelFutures(
-      final List<Future<ResponseEntity<YandexTranslateTranslateDtoResponse>>> futures) {
+  private void cancelFutures(final List<? extends Future<?>> futures) {
     futures.forEach(future -> future.cancel(true));
   }
+
+  /**
+   * Iterator over translated segments of one text that keeps up to {@code streamSegmentsInFlight}
+   * segments in translation ahead of the consumer.
+   */
+  private class TranslatedSegments implements Iterator<TranslateTextDtoResponse> {
+
+    private final TranslateTextDtoRequest request;
+    private final String clientIp;
+    private final TokenizedText tokenizedText;
+    private final List<String> words;
+
+    private final ArrayDeque<Future<String>> inFlight = new ArrayDeque<>();
+
+    // segments in flight share them, so a stream makes as many concurrent
+    // upstream calls as any other translate request
+    private final Semaphore requestPermits = upstreamConcurrencyLimiter.newRequestPermits();
+
+    // the whole translated text is needed only to save Translation
+    private final StringBuilder translatedText = new StringBuilder();
+
+    private int nextSegmentFromIndex;
+
+    private TranslatedSegments(
+        final TranslateTextDtoRequest request,
+        final String clientIp,
+        final TokenizedText tokenizedText) {
+      this.request = request;
+      this.clientIp = clientIp;
+      this.tokenizedText = tokenizedText;
+      this.words = tokenizedText.getWords();
+
+      if (words.isEmpty()) {
+        // text without words is its own translation, it's still returned as a segment
+        inFlight.add(CompletableFuture.completedFuture(request.text()));
+      } else {
+        submitSegments();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !inFlight.isEmpty();
+    }
+
+    @Override
+    public TranslateTextDtoResponse next() {
+      if (inFlight.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+
+      final String translatedSegment;
+
+      try {
+        translatedSegment = inFlight.peek().get();
+      } catch (final InterruptedException e) {
+        cancel();
+
+        Thread.currentThread().interrupt();
+
+        throw new ApplicationException(ApplicationError.TIMEOUT);
+      } catch (final ExecutionException e) {
+        cancel();
+
+        throw unwrapExecutionException(e);
+      }
+
+      inFlight.poll();
+      submitSegments();
+
+      translatedText.append(translatedSegment);
+
+      if (inFlight.isEmpty()) {
+        saveTranslation(request, clientIp, translatedText.toString());
+      }
+
+      return new TranslateTextDtoResponse(translatedSegment);
+    }
+
+    private void submitSegments() {
+      while (inFlight.size() < streamSegmentsInFlight && nextSegmentFromIndex < words.size()) {
+        final var fromWord = nextSegmentFromIndex;
+        final var toWord = Math.min(fromWord + streamSegmentWords, words.size());
+
+        inFlight.add(
+            translationStreamExecutorService.submit(
+                // every segment has its own deadline, so long texts aren't limited by it
+                () ->
+                    tokenizedText.join(
+                        fromWord,
+                        toWord,
+                        translateEachWord(
+                            request,
+                            words.subList(fromWord, toWord),
+                            Deadline.after(translationDeadline),
+                            requestPermits))));
+
+        nextSegmentFromIndex = toWord;
+      }
+    }
+
+    private void cancel() {
+      cancelFutures(List.copyOf(inFlight));
+      inFlight.clear();
+    }
+  }
 }
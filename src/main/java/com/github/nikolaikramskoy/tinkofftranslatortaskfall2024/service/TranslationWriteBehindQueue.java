@@ -0,0 +1,221 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bounded queue of {@link Translation} records that are saved in {@link TranslationRepository} by a
+ * background writer, so clients don't wait for DB.
+ *
+ * <p>Writer saves records in batches: a batch is flushed in a single transaction when it has {@code
+ * flushSize} records or {@code flushInterval} passed since its first record. When the queue is full
+ * {@link #enqueue} waits up to {@code offerTimeout} and then drops the record. Records that are
+ * left in the queue on {@link #close} are flushed before the writer stops.
+ */
+@Slf4j
+public class TranslationWriteBehindQueue implements AutoCloseable {
+
+  // how often the waiting writer checks whether the queue is closed
+  private static final long CLOSE_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private final BlockingQueue<Translation> queue;
+
+  private final int flushSize;
+  private final Duration flushInterval;
+  private final Duration offerTimeout;
+  private final Duration shutdownTimeout;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final TranslationRepository translationRepository;
+
+  private final Counter enqueuedCounter;
+  private final Counter droppedCounter;
+  private final Counter writtenCounter;
+  private final Counter skippedCounter;
+  private final Counter failedCounter;
+  private final Timer insertTimer;
+
+  private final Thread writerThread;
+
+  private volatile boolean running = true;
+
+  public TranslationWriteBehindQueue(
+      final int queueCapacity,
+      final int flushSize,
+      final Duration flushInterval,
+      final Duration offerTimeout,
+      final Duration shutdownTimeout,
+      final TransactionTemplate transactionTemplate,
+      final TranslationRepository translationRepository,
+      final MeterRegistry meterRegistry) {
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("queueCapacity <= 0");
+    }
+    if (flushSize <= 0) {
+      throw new IllegalArgumentException("flushSize <= 0");
+    }
+
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.flushSize = flushSize;
+    this.flushInterval = flushInterval;
+    this.offerTimeout = offerTimeout;
+    this.shutdownTimeout = shutdownTimeout;
+    this.transactionTemplate = transactionTemplate;
+    this.translationRepository = translationRepository;
+
+    Gauge.builder("translator.translation.writer.queue.size", queue, BlockingQueue::size)
+        .register(meterRegistry);
+    this.enqueuedCounter = createRecordsCounter(meterRegistry, "enqueued");
+    this.droppedCounter = createRecordsCounter(meterRegistry, "dropped");
+    this.writtenCounter = createRecordsCounter(meterRegistry, "written");
+    this.skippedCounter = createRecordsCounter(meterRegistry, "skipped");
+    this.failedCounter = createRecordsCounter(meterRegistry, "failed");
+    this.insertTimer =
+        Timer.builder("translator.db.inserts")
+            .description("Latency of DB inserts")
+            .tag("table", "translation")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+
+    this.writerThread = new Thread(this::runWriter, "translation-writer");
+    this.writerThread.start();
+  }
+
+  /**
+   * Enqueues {@code translation} to be saved later.
+   *
+   * @return {@code false} if {@code translation} was dropped because the queue is full or closed
+   */
+  public boolean enqueue(final Translation translation) {
+    var enqueued = false;
+
+    if (running) {
+      try {
+        enqueued = queue.offer(translation, offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (enqueued) {
+      enqueuedCounter.increment();
+    } else {
+      droppedCounter.increment();
+
+      log.warn("Translation {} is dropped, write-behind queue is full", translation.id());
+    }
+
+    return enqueued;
+  }
+
+  /** Stops accepting new records and waits until queued records are saved. */
+  @Override
+  public void close() throws InterruptedException {
+    running = false;
+
+    // writer isn't interrupted, it'd fail the batch it's flushing
+    writerThread.join(shutdownTimeout.toMillis());
+
+    if (writerThread.isAlive()) {
+      log.warn("write-behind queue isn't drained in {}, {} left", shutdownTimeout, queue.size());
+    }
+  }
+
+  private void runWriter() {
+    while (running || !queue.isEmpty()) {
+      final var batch = new ArrayList<Translation>(flushSize);
+
+      try {
+        collectBatch(batch);
+      } catch (final InterruptedException e) {
+        // nothing is expected to interrupt the writer, the flag is cleared
+        // by now, so records collected so far are still flushed
+        log.warn("translation writer is interrupted");
+      }
+
+      if (!batch.isEmpty()) {
+        flush(batch);
+      }
+    }
+  }
+
+  private void collectBatch(final List<Translation> batch) throws InterruptedException {
+    final var first =
+        queue.poll(
+            Math.min(flushInterval.toNanos(), CLOSE_CHECK_INTERVAL_NANOS), TimeUnit.NANOSECONDS);
+
+    if (first == null) {
+      return;
+    }
+
+    batch.add(first);
+
+    final var deadline = System.nanoTime() + flushInterval.toNanos();
+
+    while (batch.size() < flushSize) {
+      queue.drainTo(batch, flushSize - batch.size());
+
+      final var remaining = deadline - System.nanoTime();
+
+      // there is no point to wait for more records on shutdown
+      if (batch.size() == flushSize || remaining <= 0 || !running) {
+        return;
+      }
+
+      final var next =
+          queue.poll(Math.min(remaining, CLOSE_CHECK_INTERVAL_NANOS), TimeUnit.NANOSECONDS);
+
+      if (next != null) {
+        batch.add(next);
+      }
+    }
+  }
+
+  private void flush(final List<Translation> batch) {
+    try {
+      final var outcomes =
+          insertTimer.record(
+              () ->
+                  transactionTemplate.execute(
+                      transactionStatus -> translationRepository.saveTranslations(batch)));
+      final var written = Arrays.stream(outcomes).sum();
+
+      writtenCounter.increment(written);
+
+      // ids are generated by UuidV7Generator, so the only way to get a conflict
+      // is to save the same record twice, there is nothing to retry then
+      if (written < batch.size()) {
+        skippedCounter.increment(batch.size() - written);
+
+        log.warn("{} Translations already exist in the DB", batch.size() - written);
+      }
+
+      log.info("successful insertion of {} Translations in the DB", written);
+    } catch (final RuntimeException e) {
+      failedCounter.increment(batch.size());
+
+      log.error("failed to insert {} Translations in the DB", batch.size(), e);
+    }
+  }
+
+  private static Counter createRecordsCounter(
+      final MeterRegistry meterRegistry, final String result) {
+    return Counter.builder("translator.translation.writer.records")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+}
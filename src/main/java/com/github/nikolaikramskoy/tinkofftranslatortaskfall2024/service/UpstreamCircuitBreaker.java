@@ -0,0 +1,222 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationError;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.YandexApiException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Fails Yandex Translate API calls fast while Yandex Translate API is failing.
+ *
+ * <p>Breaker is {@link State#CLOSED} until at least {@code failureRateThreshold} of the last {@code
+ * windowSize} calls (but not less than {@code minimumCalls} of them) fail. Then it's {@link
+ * State#OPEN} for {@code openDuration}: every call is rejected with {@link
+ * ApplicationError#UPSTREAM_UNAVAILABLE}. Then it's {@link State#HALF_OPEN}: only {@code
+ * halfOpenCalls} trial calls are let through, breaker is closed if all of them succeed and is
+ * opened again if any of them fails.
+ */
+@Slf4j
+public class UpstreamCircuitBreaker {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final Clock clock;
+
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final Duration openDuration;
+  private final int halfOpenCalls;
+
+  // outcomes of the last calls in CLOSED state, true means failure
+  private final boolean[] window;
+  private int windowCalls;
+  private int windowIndex;
+  private int windowFailures;
+
+  private State state = State.CLOSED;
+  // outcomes of calls that were allowed in another state (generation) are ignored
+  private long generation;
+  private long openedAtMillis;
+  private int halfOpenAllowed;
+  private int halfOpenSucceeded;
+
+  public UpstreamCircuitBreaker(
+      final Clock clock,
+      final int windowSize,
+      final int minimumCalls,
+      final double failureRateThreshold,
+      final Duration openDuration,
+      final int halfOpenCalls) {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("windowSize <= 0");
+    }
+    if (minimumCalls <= 0 || minimumCalls > windowSize) {
+      throw new IllegalArgumentException("minimumCalls <= 0 || minimumCalls > windowSize");
+    }
+    if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+      throw new IllegalArgumentException("failureRateThreshold <= 0 || failureRateThreshold > 1");
+    }
+    if (halfOpenCalls <= 0) {
+      throw new IllegalArgumentException("halfOpenCalls <= 0");
+    }
+
+    this.clock = clock;
+    this.window = new boolean[windowSize];
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.openDuration = openDuration;
+    this.halfOpenCalls = halfOpenCalls;
+  }
+
+  /**
+   * @return {@code true} if {@code e} means that Yandex Translate API is failing: it's unreachable
+   *     or responds with 5xx or 429; client errors and cancelled calls don't count
+   */
+  public static boolean isUpstreamFailure(final Exception e) {
+    // the call was cancelled by this application, e.g. its deadline expired
+    if (Thread.currentThread().isInterrupted()) {
+      return false;
+    }
+
+    return switch (e) {
+      case YandexApiException yandexApiException ->
+          isUpstreamFailure(yandexApiException.getHttpStatusCode());
+      case HttpStatusCodeException httpStatusCodeException ->
+          isUpstreamFailure(httpStatusCodeException.getStatusCode());
+      case RestClientException restClientException -> true;
+      default -> false;
+    };
+  }
+
+  /**
+   * Calls {@code upstreamCall} if breaker allows it.
+   *
+   * @throws ApplicationException with {@link ApplicationError#UPSTREAM_UNAVAILABLE} if breaker is
+   *     open
+   */
+  public <T> T call(final Callable<T> upstreamCall) throws Exception {
+    final var callGeneration = acquirePermission();
+
+    try {
+      final var result = upstreamCall.call();
+
+      onCompletion(callGeneration, false);
+
+      return result;
+    } catch (final Exception e) {
+      if (isUpstreamFailure(e)) {
+        onCompletion(callGeneration, true);
+      } else {
+        onIgnoredCompletion(callGeneration);
+      }
+
+      throw e;
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * @return failure rate of the last calls in {@link State#CLOSED} state
+   */
+  public synchronized double getFailureRate() {
+    return windowCalls == 0 ? 0 : (double) windowFailures / windowCalls;
+  }
+
+  private synchronized long acquirePermission() {
+    if (state == State.OPEN && clock.millis() - openedAtMillis >= openDuration.toMillis()) {
+      transitionTo(State.HALF_OPEN);
+    }
+
+    switch (state) {
+      case OPEN -> throw new ApplicationException(ApplicationError.UPSTREAM_UNAVAILABLE);
+      case HALF_OPEN -> {
+        if (halfOpenAllowed == halfOpenCalls) {
+          throw new ApplicationException(ApplicationError.UPSTREAM_UNAVAILABLE);
+        }
+
+        ++halfOpenAllowed;
+      }
+      case CLOSED -> {}
+    }
+
+    return generation;
+  }
+
+  private synchronized void onCompletion(final long callGeneration, final boolean failed) {
+    if (callGeneration != generation) {
+      return;
+    }
+
+    switch (state) {
+      case CLOSED -> {
+        if (windowCalls == window.length) {
+          windowFailures -= window[windowIndex] ? 1 : 0;
+        } else {
+          ++windowCalls;
+        }
+
+        window[windowIndex] = failed;
+        windowFailures += failed ? 1 : 0;
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (windowCalls >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+          transitionTo(State.OPEN);
+        }
+      }
+      case HALF_OPEN -> {
+        if (failed) {
+          transitionTo(State.OPEN);
+        } else if (++halfOpenSucceeded == halfOpenCalls) {
+          transitionTo(State.CLOSED);
+        }
+      }
+      case OPEN -> {}
+    }
+  }
+
+  private synchronized void onIgnoredCompletion(final long callGeneration) {
+    // trial call that didn't tell anything lets another trial call in
+    if (callGeneration == generation && state == State.HALF_OPEN) {
+      --halfOpenAllowed;
+    }
+  }
+
+  private void transitionTo(final State newState) {
+    log.warn("Yandex Translate API circuit breaker: {} -> {}", state, newState);
+
+    state = newState;
+    ++generation;
+
+    switch (newState) {
+      case OPEN -> openedAtMillis = clock.millis();
+      case HALF_OPEN -> {
+        halfOpenAllowed = 0;
+        halfOpenSucceeded = 0;
+      }
+      case CLOSED -> {
+        windowCalls = 0;
+        windowIndex = 0;
+        windowFailures = 0;
+      }
+    }
+  }
+
+  private static boolean isUpstreamFailure(final HttpStatusCode httpStatusCode) {
+    return httpStatusCode.is5xxServerError()
+        || httpStatusCode.isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+  }
+}
@@ -0,0 +1,184 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of in-flight Yandex Translate API calls both globally and per translate
+ * request, so a single long text can't occupy all upstream capacity.
+ *
+ * <p>Global limit is adaptive (AIMD): every call that finishes faster than {@code latencyThreshold}
+ * increases it by {@code 1 / limit}, so it grows by about one per {@code limit} calls, and every
+ * call that is slower or fails because of Yandex Translate API (see {@link
+ * UpstreamCircuitBreaker#isUpstreamFailure}) multiplies it by {@code backoffRatio}. So when Yandex
+ * Translate API degrades, calls wait for a slot here instead of making it even slower.
+ */
+public class UpstreamConcurrencyLimiter {
+
+  private final int minConcurrentCalls;
+  private final int maxConcurrentCalls;
+  private final int maxConcurrentCallsPerRequest;
+  private final long latencyThresholdNanos;
+  private final double backoffRatio;
+
+  private final ReentrantLock lock = new ReentrantLock(true);
+  private final Condition slotReleased = lock.newCondition();
+
+  // guarded by lock
+  private double limit;
+  private int inFlight;
+
+  public UpstreamConcurrencyLimiter(
+      final int minConcurrentCalls,
+      final int initialConcurrentCalls,
+      final int maxConcurrentCalls,
+      final int maxConcurrentCallsPerRequest,
+      final Duration latencyThreshold,
+      final double backoffRatio) {
+    if (minConcurrentCalls <= 0) {
+      throw new IllegalArgumentException("minConcurrentCalls <= 0");
+    }
+    if (initialConcurrentCalls < minConcurrentCalls
+        || initialConcurrentCalls > maxConcurrentCalls) {
+      throw new IllegalArgumentException(
+          "initialConcurrentCalls < minConcurrentCalls"
+              + " || initialConcurrentCalls > maxConcurrentCalls");
+    }
+    if (maxConcurrentCallsPerRequest <= 0) {
+      throw new IllegalArgumentException("maxConcurrentCallsPerRequest <= 0");
+    }
+    if (backoffRatio <= 0 || backoffRatio >= 1) {
+      throw new IllegalArgumentException("backoffRatio <= 0 || backoffRatio >= 1");
+    }
+
+    this.minConcurrentCalls = minConcurrentCalls;
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.maxConcurrentCallsPerRequest = maxConcurrentCallsPerRequest;
+    this.latencyThresholdNanos = latencyThreshold.toNanos();
+    this.backoffRatio = backoffRatio;
+    this.limit = initialConcurrentCalls;
+  }
+
+  /**
+   * @return permits of a single translate request; caller acquires one before submitting an
+   *     upstream call and the call releases it on completion
+   */
+  public Semaphore newRequestPermits() {
+    return new Semaphore(maxConcurrentCallsPerRequest);
+  }
+
+  /**
+   * Calls {@code upstreamCall} when the global limit allows it and adjusts the limit by its latency
+   * and outcome.
+   *
+   * @throws TimeoutException if the global limit didn't allow the call before {@code deadline}
+   */
+  public <T> T call(final Callable<T> upstreamCall, final Deadline deadline) throws Exception {
+    acquire(deadline);
+
+    final var start = System.nanoTime();
+    var congested = false;
+    var completed = false;
+
+    try {
+      final var result = upstreamCall.call();
+
+      completed = true;
+
+      return result;
+    } catch (final Exception e) {
+      congested = UpstreamCircuitBreaker.isUpstreamFailure(e);
+
+      throw e;
+    } finally {
+      // calls cancelled by deadline are slow too, even though they didn't fail on their own
+      congested |= System.nanoTime() - start > latencyThresholdNanos;
+
+      release(congested ? Outcome.CONGESTED : completed ? Outcome.SUCCEEDED : Outcome.IGNORED);
+    }
+  }
+
+  public int getLimit() {
+    lock.lock();
+
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getInFlight() {
+    lock.lock();
+
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getAvailableGlobalPermits() {
+    lock.lock();
+
+    try {
+      return Math.max(0, (int) limit - inFlight);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void acquire(final Deadline deadline) throws InterruptedException, TimeoutException {
+    lock.lockInterruptibly();
+
+    try {
+      var remainingNanos = deadline.remainingNanos();
+
+      while (inFlight >= (int) limit) {
+        if (remainingNanos <= 0) {
+          throw new TimeoutException("no free upstream call slot before deadline");
+        }
+
+        remainingNanos = slotReleased.awaitNanos(remainingNanos);
+      }
+
+      ++inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(final Outcome outcome) {
+    lock.lock();
+
+    try {
+      switch (outcome) {
+          // limit isn't increased when it isn't used, otherwise it'd grow
+          // without bound under low load and be useless when load comes
+        case SUCCEEDED -> {
+          if (inFlight * 2 >= limit) {
+            limit = Math.min(maxConcurrentCalls, limit + 1 / limit);
+          }
+        }
+        case CONGESTED -> limit = Math.max(minConcurrentCalls, limit * backoffRatio);
+        case IGNORED -> {}
+      }
+
+      --inFlight;
+
+      slotReleased.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private enum Outcome {
+    SUCCEEDED,
+    CONGESTED,
+    IGNORED
+  }
+}
@@ -0,0 +1,190 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Makes Yandex Translate API calls and, if hedging is enabled, sends a duplicate (hedge) of a call
+ * that takes longer than p95 of observed call latency; result of the attempt that finishes first is
+ * used and the other attempt is cancelled.
+ *
+ * <p>Hedge is never sent earlier than {@code minDelay}, so hedges make up at most about 5% of calls
+ * even when latency is low. Every attempt passes local limits (see {@link Admission}) before it's
+ * sent, and neither the latency nor the hedge delay include time spent there: a call that waits for
+ * quota or for a call slot isn't slow upstream, and its hedge would only wait behind it. Latency of
+ * every sent attempt is published as {@code translator.yandex.translate.api.calls} timer with p50,
+ * p95 and p99.
+ */
+public class UpstreamHedger {
+
+  private static final double HEDGE_PERCENTILE = 0.95;
+
+  private final boolean enabled;
+  private final Duration minDelay;
+
+  private final ExecutorService attemptExecutorService;
+
+  private final Timer callTimer;
+  private final Counter hedgesCounter;
+  private final Counter hedgeWinsCounter;
+
+  public UpstreamHedger(
+      final boolean enabled,
+      final Duration minDelay,
+      final ExecutorService attemptExecutorService,
+      final MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.minDelay = minDelay;
+    this.attemptExecutorService = attemptExecutorService;
+    this.callTimer =
+        Timer.builder("translator.yandex.translate.api.calls")
+            .description("Latency of Yandex Translate API call attempts")
+            .publishPercentiles(0.5, HEDGE_PERCENTILE, 0.99)
+            .register(meterRegistry);
+    this.hedgesCounter =
+        Counter.builder("translator.yandex.translate.api.hedges")
+            .description("Hedged Yandex Translate API calls")
+            .register(meterRegistry);
+    this.hedgeWinsCounter =
+        Counter.builder("translator.yandex.translate.api.hedges.won")
+            .description("Hedged Yandex Translate API calls where the hedge finished first")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Calls {@code upstreamCall} through {@code admission} and, if it's slow once sent, its hedge.
+   *
+   * @throws TimeoutException if no attempt finished before {@code deadline}
+   * @throws Exception failure of the last attempt if all attempts failed
+   */
+  public <T> T call(
+      final Callable<T> upstreamCall, final Admission<T> admission, final Deadline deadline)
+      throws Exception {
+    if (!enabled) {
+      return attempt(upstreamCall, admission, () -> {});
+    }
+
+    final var completionService = new ExecutorCompletionService<T>(attemptExecutorService);
+    final var attempts = new ArrayList<Future<T>>(2);
+
+    try {
+      final var primarySent = new AtomicBoolean();
+      final var primarySentOrDone = new CountDownLatch(1);
+      final var primary =
+          completionService.submit(
+              () -> {
+                try {
+                  return attempt(
+                      upstreamCall,
+                      admission,
+                      () -> {
+                        primarySent.set(true);
+                        primarySentOrDone.countDown();
+                      });
+                } finally {
+                  primarySentOrDone.countDown();
+                }
+              });
+      attempts.add(primary);
+
+      primarySentOrDone.await(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+
+      Future<T> completed = null;
+
+      // attempt that failed or timed out before it was sent (e.g. quota is exhausted)
+      // would only be repeated by a hedge, so its result is just awaited
+      if (primarySent.get()) {
+        completed =
+            completionService.poll(
+                Math.min(hedgeDelayNanos(), deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+
+        if (completed == null && !deadline.isExpired()) {
+          hedgesCounter.increment();
+
+          attempts.add(completionService.submit(() -> attempt(upstreamCall, admission, () -> {})));
+        }
+      }
+
+      ExecutionException lastFailure = null;
+
+      for (var pending = attempts.size(); pending > 0; --pending) {
+        if (completed == null) {
+          completed = completionService.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        }
+        if (completed == null) {
+          throw new TimeoutException("Yandex Translate API call didn't finish before deadline");
+        }
+
+        try {
+          final var result = completed.get();
+
+          if (completed != primary) {
+            hedgeWinsCounter.increment();
+          }
+
+          return result;
+        } catch (final ExecutionException e) {
+          // the other attempt may still succeed
+          lastFailure = e;
+          completed = null;
+        }
+      }
+
+      if (lastFailure.getCause() instanceof Error error) {
+        throw error;
+      }
+
+      throw (Exception) lastFailure.getCause();
+    } finally {
+      attempts.forEach(attempt -> attempt.cancel(true));
+    }
+  }
+
+  private <T> T attempt(
+      final Callable<T> upstreamCall, final Admission<T> admission, final Runnable onSent)
+      throws Exception {
+    return admission.call(
+        () -> {
+          onSent.run();
+
+          return callTimer.recordCallable(upstreamCall);
+        });
+  }
+
+  private long hedgeDelayNanos() {
+    var p95Nanos = 0.0;
+
+    for (final var percentile : callTimer.takeSnapshot().percentileValues()) {
+      if (percentile.percentile() == HEDGE_PERCENTILE) {
+        p95Nanos = percentile.value(TimeUnit.NANOSECONDS);
+      }
+    }
+
+    return Math.max(minDelay.toNanos(), (long) p95Nanos);
+  }
+
+  /**
+   * Local limits that every attempt passes before it's sent, e.g. circuit breaker, quotas and
+   * concurrency limit.
+   */
+  @FunctionalInterface
+  public interface Admission<T> {
+
+    /**
+     * @return result of {@code sendCall} once limits allow to call it
+     */
+    T call(Callable<T> sendCall) throws Exception;
+  }
+}
@@ -0,0 +1,129 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationError;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces Yandex Translate API calls to stay within its quotas of requests and characters per second
+ * instead of getting 429 from it.
+ *
+ * <p>Each quota is a token bucket refilled at its rate and holding at most one second of it. A call
+ * reserves a request token and a token per character of its words, which may put buckets in debt;
+ * the call then sleeps until the debt is repaid. If that takes longer than {@code maxWait} or than
+ * is left before the deadline, nothing is reserved and the call fails with {@link
+ * ApplicationError#UPSTREAM_QUOTA_EXHAUSTED}.
+ */
+public class UpstreamQuotaLimiter {
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double requestsPerNano;
+  private final double charactersPerNano;
+  private final double maxRequests;
+  private final double maxCharacters;
+  private final long maxWaitNanos;
+
+  private final Counter rejectionsCounter;
+
+  // guarded by this, negative values are debt of reserved calls
+  private double requests;
+  private double characters;
+  private long refilledAtNanos = System.nanoTime();
+
+  public UpstreamQuotaLimiter(
+      final double requestsPerSecond,
+      final double charactersPerSecond,
+      final Duration maxWait,
+      final MeterRegistry meterRegistry) {
+    if (requestsPerSecond <= 0) {
+      throw new IllegalArgumentException("requestsPerSecond <= 0");
+    }
+    if (charactersPerSecond <= 0) {
+      throw new IllegalArgumentException("charactersPerSecond <= 0");
+    }
+
+    this.requestsPerNano = requestsPerSecond / NANOS_PER_SECOND;
+    this.charactersPerNano = charactersPerSecond / NANOS_PER_SECOND;
+    this.maxRequests = requestsPerSecond;
+    this.maxCharacters = charactersPerSecond;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.requests = maxRequests;
+    this.characters = maxCharacters;
+    this.rejectionsCounter =
+        Counter.builder("translator.yandex.translate.api.quota.rejections")
+            .description("Yandex Translate API calls rejected because quota was exhausted")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Calls {@code upstreamCall} when quotas allow a call with {@code callCharacters} characters.
+   *
+   * @throws ApplicationException with {@link ApplicationError#UPSTREAM_QUOTA_EXHAUSTED} if quotas
+   *     don't allow the call soon enough
+   */
+  public <T> T call(
+      final Callable<T> upstreamCall, final int callCharacters, final Deadline deadline)
+      throws Exception {
+    final var waitNanos =
+        reserve(callCharacters, Math.min(maxWaitNanos, deadline.remainingNanos()));
+
+    if (waitNanos < 0) {
+      rejectionsCounter.increment();
+
+      throw new ApplicationException(ApplicationError.UPSTREAM_QUOTA_EXHAUSTED);
+    }
+    if (waitNanos > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      } catch (final InterruptedException e) {
+        // call isn't made, so other calls may use what it reserved
+        refund(callCharacters);
+
+        Thread.currentThread().interrupt();
+
+        throw e;
+      }
+    }
+
+    return upstreamCall.call();
+  }
+
+  /**
+   * @return how long the reserved call must wait, or -1 if it would wait longer than {@code
+   *     maxWaitNanos} and nothing was reserved
+   */
+  private synchronized long reserve(final int callCharacters, final long maxWaitNanos) {
+    final var now = System.nanoTime();
+    final var elapsedNanos = now - refilledAtNanos;
+
+    requests = Math.min(maxRequests, requests + elapsedNanos * requestsPerNano);
+    characters = Math.min(maxCharacters, characters + elapsedNanos * charactersPerNano);
+    refilledAtNanos = now;
+
+    final var waitNanos =
+        (long)
+            Math.ceil(
+                Math.max(
+                    Math.max(0, 1 - requests) / requestsPerNano,
+                    Math.max(0, callCharacters - characters) / charactersPerNano));
+
+    if (waitNanos > maxWaitNanos) {
+      return -1;
+    }
+
+    requests -= 1;
+    characters -= callCharacters;
+
+    return waitNanos;
+  }
+
+  private synchronized void refund(final int callCharacters) {
+    requests = Math.min(maxRequests, requests + 1);
+    characters = Math.min(maxCharacters, characters + callCharacters);
+  }
+}
@@ -0,0 +1,112 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Indexes for translation history: it's read newest first by {@code ("timestamp", id)} with keyset
+ * pagination, optionally filtered by client IP or language pair.
+ *
+ * <p>Plain CREATE INDEX on the partitioned table would block writes to every partition until all of
+ * them are indexed. Instead the index is created on the partitioned table only (it's invalid until
+ * every partition has its own), then on every partition CONCURRENTLY and attached. Future
+ * partitions get indexes on creation. CREATE INDEX CONCURRENTLY can't run in a transaction, so
+ * neither can this migration.
+ */
+public class V6__CreateTranslationHistoryIndexes extends BaseJavaMigration {
+
+  private static final String TABLE = "translation";
+
+  // index names are "<table>_<suffix>", so index of a partition has the same suffix
+  private static final List<Index> INDEXES =
+      List.of(
+          new Index("timestamp_id_idx", "(\"timestamp\", id)"),
+          new Index("client_ip_timestamp_id_idx", "(client_ip, \"timestamp\", id)"),
+          new Index(
+              "language_pair_timestamp_id_idx",
+              "(source_language, target_language, \"timestamp\", id)"));
+
+  private static final String FIND_PARTITIONS_QUERY =
+      "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+          + "WHERE i.inhparent = '"
+          + TABLE
+          + "'::regclass ORDER BY c.relname";
+
+  // CREATE INDEX CONCURRENTLY that failed leaves an invalid index, IF NOT EXISTS would keep it
+  private static final String IS_INVALID_INDEX_QUERY =
+      "SELECT NOT x.indisvalid FROM pg_index x JOIN pg_class c ON c.oid = x.indexrelid "
+          + "WHERE c.relname = ? AND c.relnamespace = current_schema()::regnamespace";
+
+  @Override
+  public boolean canExecuteInTransaction() {
+    return false;
+  }
+
+  @Override
+  public void migrate(final Context context) throws SQLException {
+    final var connection = context.getConnection();
+    final var partitions = findPartitions(connection);
+
+    for (final var index : INDEXES) {
+      final var indexName = TABLE + '_' + index.suffix();
+
+      execute(
+          connection,
+          "CREATE INDEX IF NOT EXISTS " + indexName + " ON ONLY " + TABLE + ' ' + index.columns());
+
+      for (final var partition : partitions) {
+        final var partitionIndexName = partition + '_' + index.suffix();
+
+        if (isInvalidIndex(connection, partitionIndexName)) {
+          execute(connection, "DROP INDEX CONCURRENTLY " + partitionIndexName);
+        }
+
+        execute(
+            connection,
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS "
+                + partitionIndexName
+                + " ON "
+                + partition
+                + ' '
+                + index.columns());
+        execute(connection, "ALTER INDEX " + indexName + " ATTACH PARTITION " + partitionIndexName);
+      }
+    }
+  }
+
+  private static List<String> findPartitions(final Connection connection) throws SQLException {
+    final var partitions = new ArrayList<String>();
+
+    try (final var statement = connection.createStatement();
+        final var resultSet = statement.executeQuery(FIND_PARTITIONS_QUERY)) {
+      while (resultSet.next()) {
+        partitions.add(resultSet.getString(1));
+      }
+    }
+
+    return partitions;
+  }
+
+  private static boolean isInvalidIndex(final Connection connection, final String indexName)
+      throws SQLException {
+    try (final var statement = connection.prepareStatement(IS_INVALID_INDEX_QUERY)) {
+      statement.setString(1, indexName);
+
+      try (final var resultSet = statement.executeQuery()) {
+        return resultSet.next() && resultSet.getBoolean(1);
+      }
+    }
+  }
+
+  private static void execute(final Connection connection, final String sql) throws SQLException {
+    try (final var statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private record Index(String suffix, String columns) {}
+}
@@ -0,0 +1,12 @@
+-- translation memory: translations of single words that are reused across
+-- requests, application restarts and nodes
+CREATE TABLE IF NOT EXISTS word_translation (
+    source_language TEXT NOT NULL,
+    target_language TEXT NOT NULL,
+    -- SHA-256 of UTF-8 encoded source_text
+    source_hash BYTEA NOT NULL,
+    source_text TEXT NOT NULL,
+    translated_text TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (source_language, target_language, source_hash)
+);
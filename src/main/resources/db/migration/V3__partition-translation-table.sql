@@ -0,0 +1,42 @@
+-- translation is partitioned by day, so expired records are removed by
+-- dropping whole partitions instead of DELETE and vacuum of a huge table
+ALTER TABLE translation RENAME TO translation_unpartitioned;
+ALTER INDEX translation_pkey RENAME TO translation_unpartitioned_pkey;
+
+-- primary key of partitioned table must include the partition key
+CREATE TABLE translation (
+    id uuid NOT NULL,
+    client_ip inet NOT NULL,
+    "timestamp" TIMESTAMP NOT NULL,
+    source_language TEXT NOT NULL,
+    target_language TEXT NOT NULL,
+    text TEXT NOT NULL,
+    translated_text TEXT NOT NULL,
+    PRIMARY KEY (id, "timestamp")
+) PARTITION BY RANGE ("timestamp");
+
+-- catches records whose daily partition wasn't created in time
+CREATE TABLE translation_default PARTITION OF translation DEFAULT;
+
+-- the rest of future partitions are created by the application on start
+DO $$
+DECLARE
+    partition_day date;
+BEGIN
+    FOR partition_day IN
+        SELECT DISTINCT "timestamp"::date FROM translation_unpartitioned
+        UNION
+        SELECT (now() AT TIME ZONE 'UTC')::date
+    LOOP
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF translation FOR VALUES FROM (%L) TO (%L)',
+            'translation_p' || to_char(partition_day, 'YYYYMMDD'),
+            partition_day,
+            partition_day + 1);
+    END LOOP;
+END
+$$;
+
+INSERT INTO translation SELECT * FROM translation_unpartitioned;
+
+DROP TABLE translation_unpartitioned;
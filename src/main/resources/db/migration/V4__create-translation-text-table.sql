@@ -0,0 +1,23 @@
+-- bodies of translated texts are stored once per distinct content and
+-- referenced from translation by hash, since many requests have the same text
+CREATE TABLE translation_text (
+    -- SHA-256 of UTF-8 encoded content
+    hash BYTEA PRIMARY KEY,
+    content TEXT NOT NULL,
+    -- day of the latest translation that references the content, so contents
+    -- referenced only by dropped partitions can be found and deleted
+    last_used_on DATE NOT NULL
+);
+
+-- large contents are compressed by TOAST anyway, lz4 is faster than the
+-- default pglz, but not every PostgreSQL build supports it
+DO $$
+BEGIN
+    ALTER TABLE translation_text ALTER COLUMN content SET COMPRESSION lz4;
+EXCEPTION
+    WHEN feature_not_supported THEN
+        RAISE NOTICE 'lz4 is not supported, translation_text.content is compressed with pglz';
+END
+$$;
+
+CREATE INDEX translation_text_last_used_on_idx ON translation_text (last_used_on);
@@ -0,0 +1,67 @@
+-- moves bodies of existing translations into translation_text
+INSERT INTO translation_text (hash, content, last_used_on)
+SELECT sha256(convert_to(content, 'UTF8')), content, max(used_on)
+FROM (
+    SELECT text AS content, "timestamp"::date AS used_on FROM translation
+    UNION ALL
+    SELECT translated_text, "timestamp"::date FROM translation
+) AS contents
+GROUP BY content
+ON CONFLICT (hash) DO NOTHING;
+
+-- translation is rebuilt with hashes instead of bodies like in V3, since
+-- UPDATE would write a new version of every row and DROP COLUMN would keep
+-- the bodies on disk until the whole table is rewritten
+ALTER TABLE translation RENAME TO translation_inline;
+ALTER INDEX translation_pkey RENAME TO translation_inline_pkey;
+
+CREATE TABLE translation (
+    id uuid NOT NULL,
+    client_ip inet NOT NULL,
+    "timestamp" TIMESTAMP NOT NULL,
+    source_language TEXT NOT NULL,
+    target_language TEXT NOT NULL,
+    -- SHA-256 of UTF-8 encoded translation_text.content
+    text_hash BYTEA NOT NULL,
+    translated_text_hash BYTEA NOT NULL,
+    PRIMARY KEY (id, "timestamp")
+) PARTITION BY RANGE ("timestamp");
+
+-- every partition is recreated with the same name and bounds, so the
+-- application keeps finding them by name
+DO $$
+DECLARE
+    old_partition record;
+    old_index_name name;
+BEGIN
+    FOR old_partition IN
+        SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'translation_inline'::regclass
+    LOOP
+        FOR old_index_name IN
+            SELECT ic.relname
+            FROM pg_index x
+            JOIN pg_class ic ON ic.oid = x.indexrelid
+            WHERE x.indrelid = format('%I', old_partition.relname)::regclass
+        LOOP
+            EXECUTE format(
+                'ALTER INDEX %I RENAME TO %I', old_index_name, old_index_name || '_inline');
+        END LOOP;
+
+        EXECUTE format(
+            'ALTER TABLE %I RENAME TO %I', old_partition.relname, old_partition.relname || '_inline');
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF translation %s', old_partition.relname, old_partition.bound);
+    END LOOP;
+END
+$$;
+
+INSERT INTO translation (id, client_ip, "timestamp", source_language, target_language, text_hash,
+                         translated_text_hash)
+SELECT id, client_ip, "timestamp", source_language, target_language,
+       sha256(convert_to(text, 'UTF8')), sha256(convert_to(translated_text, 'UTF8'))
+FROM translation_inline;
+
+DROP TABLE translation_inline;
@@ -0,0 +1,47 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
+
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class ClientIpResolverTest {
+
+  private static final String PROXY_IP = "10.0.0.1";
+
+  private final ClientIpResolver clientIpResolver = new ClientIpResolver(Set.of(PROXY_IP));
+
+  @Test
+  void testResolve_untrustedRemoteAddr_ignoreXForwardedFor() {
+    final var request = createRequest("1.2.3.4", "5.6.7.8");
+
+    Assertions.assertEquals("1.2.3.4", clientIpResolver.resolve(request));
+  }
+
+  @Test
+  void testResolve_trustedProxy_returnNearestUntrustedAddress() {
+    // 9.9.9.9 was written by the client itself, so it can't be trusted
+    final var request = createRequest(PROXY_IP, "9.9.9.9, 5.6.7.8, " + PROXY_IP);
+
+    Assertions.assertEquals("5.6.7.8", clientIpResolver.resolve(request));
+  }
+
+  @Test
+  void testResolve_trustedProxyWithoutXForwardedFor_returnRemoteAddr() {
+    final var request = createRequest(PROXY_IP, null);
+
+    Assertions.assertEquals(PROXY_IP, clientIpResolver.resolve(request));
+  }
+
+  private static MockHttpServletRequest createRequest(
+      final String remoteAddr, final String xForwardedFor) {
+    final var request = new MockHttpServletRequest();
+    request.setRemoteAddr(remoteAddr);
+
+    if (xForwardedFor != null) {
+      request.addHeader("X-Forwarded-For", xForwardedFor);
+    }
+
+    return request;
+  }
+}
@@ -0,0 +1,31 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.RequestBodyTooLargeException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SizeLimitedInputStreamTest {
+
+  @Test
+  void testRead_bodyOfMaxSize_readWholeBody() throws IOException {
+    final var inputStream = new SizeLimitedInputStream(new ByteArrayInputStream(new byte[10]), 10);
+
+    Assertions.assertEquals(10, inputStream.readAllBytes().length);
+    Assertions.assertEquals(10, inputStream.getReadBytes());
+  }
+
+  @Test
+  void testRead_tooLargeBody_throwBeforeReadingItAll() {
+    final var body = new ByteArrayInputStream(new byte[1000]);
+    final var inputStream = new SizeLimitedInputStream(body, 10);
+
+    final var actual =
+        Assertions.assertThrows(RequestBodyTooLargeException.class, inputStream::readAllBytes);
+
+    Assertions.assertEquals(10, actual.getMaxSize());
+    // at most one byte over the limit is read from the body
+    Assertions.assertEquals(1000 - 11, body.available());
+  }
+}
@@ -2,38 +2,61 @@ package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller.utility.JsonConverter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDto;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.BulkTranslateTextDtoRequest;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.TranslateTextDtoRequest;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.AvailableLanguageDto;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.AvailableLanguagesDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.BulkTranslateTextDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.BulkTranslationDto;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslateTextDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.ClientRateLimiter;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(TranslationController.class)
+// RequestBodySizeLimitAdvice records body sizes
+@Import({ClientIpResolver.class, SimpleMeterRegistry.class})
 class TranslationControllerTest {
 
   private static final String GET_AVAILABLE_LANGUAGES_API_URL = "/v1/available-languages";
   private static final String TRANSLATE_TEXT_API_URL = "/v1/translate";
+  private static final String TRANSLATE_TEXTS_API_URL = "/v1/translate/bulk";
+  private static final String TRANSLATE_TEXT_STREAM_API_URL = "/v1/translate/stream";
 
   @Autowired private MockMvc mockMvc;
 
   @MockBean private TranslationService translationServiceMock;
 
+  @MockBean private ClientRateLimiter clientRateLimiterMock;
+
   @Test
   void testGetAvailableLanguages_validRequest_returnDtoResponse() throws Exception {
     final var availableLanguageDtos =
@@ -109,4 +132,230 @@ class TranslationControllerTest {
     // Must be 3 not blank validation errors
     Assertions.assertEquals(3, errorDtoResponse.errors().size());
   }
+
+  @Test
+  void testTranslateText_clientRateLimitExceeded_returnTooManyRequests() throws Exception {
+    final var request = new TranslateTextDtoRequest("привет", "ru", "en");
+
+    when(clientRateLimiterMock.tryAcquire(any(String.class)))
+        .thenReturn(Duration.ofMillis(1500).toNanos());
+
+    final var mvcResult =
+        mockMvc
+            .perform(
+                post(TRANSLATE_TEXT_API_URL)
+                    .characterEncoding(StandardCharsets.UTF_8)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonConverter.objectToJson(request)))
+            .andReturn();
+
+    final var response = mvcResult.getResponse();
+
+    Assertions.assertEquals(429, response.getStatus());
+    Assertions.assertEquals("2", response.getHeader("Retry-After"));
+    verify(translationServiceMock, never()).translateText(any(), any());
+  }
+
+  @Test
+  void testTranslateText_tooLargeBody_returnPayloadTooLarge() throws Exception {
+    // 1MB is the limit in config/application.yml
+    final var request = new TranslateTextDtoRequest("a".repeat(1024 * 1024), "ru", "en");
+
+    final var mvcResult =
+        mockMvc
+            .perform(
+                post(TRANSLATE_TEXT_API_URL)
+                    .characterEncoding(StandardCharsets.UTF_8)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonConverter.objectToJson(request)))
+            .andReturn();
+
+    Assertions.assertEquals(413, mvcResult.getResponse().getStatus());
+    verify(translationServiceMock, never()).translateText(any(), any());
+  }
+
+  @Test
+  void testTranslateText_malformedBody_returnBadRequest() throws Exception {
+    final var mvcResult =
+        mockMvc
+            .perform(
+                post(TRANSLATE_TEXT_API_URL)
+                    .characterEncoding(StandardCharsets.UTF_8)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"text\": "))
+            .andReturn();
+
+    Assertions.assertEquals(400, mvcResult.getResponse().getStatus());
+  }
+
+  @Test
+  void testTranslateTextStream_validRequest_returnNdjsonSegments() throws Exception {
+    final var request = new TranslateTextDtoRequest("привет всем", "ru", "en");
+
+    when(translationServiceMock.translateTextStream(eq(request), any(String.class)))
+        .thenReturn(
+            Stream.of(
+                new TranslateTextDtoResponse("hello"), new TranslateTextDtoResponse(" everyone")));
+
+    final var mvcResult =
+        mockMvc
+            .perform(
+                post(TRANSLATE_TEXT_STREAM_API_URL)
+                    .characterEncoding(StandardCharsets.UTF_8)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonConverter.objectToJson(request)))
+            .andReturn();
+
+    final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+    Assertions.assertEquals(200, response.getStatus());
+    Assertions.assertEquals(MediaType.APPLICATION_NDJSON_VALUE, response.getContentType());
+
+    final var actual = new ArrayList<String>();
+
+    for (final var line : response.getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+      actual.add(JsonConverter.jsonToObject(line, TranslateTextDtoResponse.class).translatedText());
+    }
+
+    Assertions.assertEquals(List.of("hello", " everyone"), actual);
+  }
+
+  @Test
+  void testTranslateTextStream_manyConcurrentStreams_writeAllAtOnce() throws Exception {
+    final var request = new TranslateTextDtoRequest("привет", "ru", "en");
+    // more than 8 threads of Spring Boot's default task executor
+    final var streamCount = 20;
+    final var streamsWriting = new CountDownLatch(streamCount);
+
+    when(translationServiceMock.translateTextStream(eq(request), any(String.class)))
+        .thenAnswer(
+            invocation ->
+                Stream.generate(
+                        () -> {
+                          streamsWriting.countDown();
+
+                          try {
+                            // every stream waits until all of them are written at once
+                            if (!streamsWriting.await(5, TimeUnit.SECONDS)) {
+                              throw new IllegalStateException("streams are written one by one");
+                            }
+                          } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+
+                            throw new IllegalStateException(e);
+                          }
+
+                          return new TranslateTextDtoResponse("hello");
+                        })
+                    .limit(1));
+
+    final var mvcResults = new ArrayList<MvcResult>();
+
+    for (var i = 0; i < streamCount; ++i) {
+      mvcResults.add(
+          mockMvc
+              .perform(
+                  post(TRANSLATE_TEXT_STREAM_API_URL)
+                      .characterEncoding(StandardCharsets.UTF_8)
+                      .contentType(MediaType.APPLICATION_JSON)
+                      .content(JsonConverter.objectToJson(request)))
+              .andReturn());
+    }
+
+    for (final var mvcResult : mvcResults) {
+      final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+      Assertions.assertEquals(
+          "hello",
+          JsonConverter.jsonToObject(
+                  response.getContentAsString(StandardCharsets.UTF_8).trim(),
+                  TranslateTextDtoResponse.class)
+              .translatedText());
+    }
+  }
+
+  @Test
+  void testTranslateTextStream_unexpectedErrorMidStream_returnErrorAsLastLine() throws Exception {
+    final var request = new TranslateTextDtoRequest("привет всем", "ru", "en");
+
+    when(translationServiceMock.translateTextStream(eq(request), any(String.class)))
+        .thenReturn(
+            Stream.concat(
+                Stream.of(new TranslateTextDtoResponse("hello")),
+                Stream.<TranslateTextDtoResponse>generate(
+                        () -> {
+                          throw new IllegalStateException("unexpected");
+                        })
+                    .limit(1)));
+
+    final var mvcResult =
+        mockMvc
+            .perform(
+                post(TRANSLATE_TEXT_STREAM_API_URL)
+                    .characterEncoding(StandardCharsets.UTF_8)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonConverter.objectToJson(request)))
+            .andReturn();
+
+    final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+    Assertions.assertEquals(200, response.getStatus());
+
+    final var lines = response.getContentAsString(StandardCharsets.UTF_8).split("\n");
+
+    Assertions.assertEquals(2, lines.length);
+    Assertions.assertEquals(
+        "hello",
+        JsonConverter.jsonToObject(lines[0], TranslateTextDtoResponse.class).translatedText());
+    Assertions.assertEquals(
+        new ErrorDtoResponse(Collections.singletonList(new ErrorDto("unexpected"))),
+        JsonConverter.jsonToObject(lines[1], ErrorDtoResponse.class));
+  }
+
+  @Test
+  void testTranslateTexts_validRequest_returnDtoResponse() throws Exception {
+    final var request = new BulkTranslateTextDtoRequest(List.of("привет", ""), "ru", "en");
+    final var translations =
+        List.of(
+            new BulkTranslationDto("hello", null),
+            new BulkTranslationDto(null, new ErrorDto("text must not be blank")));
+
+    when(translationServiceMock.translateTexts(eq(request), any(String.class)))
+        .thenReturn(new BulkTranslateTextDtoResponse(translations));
+
+    final var mvcResult =
+        mockMvc
+            .perform(
+                post(TRANSLATE_TEXTS_API_URL)
+                    .characterEncoding(StandardCharsets.UTF_8)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonConverter.objectToJson(request)))
+            .andReturn();
+
+    final var response = mvcResult.getResponse();
+
+    Assertions.assertEquals(200, response.getStatus());
+
+    final var actual =
+        JsonConverter.jsonToObject(
+            response.getContentAsString(), BulkTranslateTextDtoResponse.class);
+
+    Assertions.assertEquals(translations, actual.translations());
+  }
+
+  @Test
+  void testTranslateTexts_emptyTexts_returnErrorDtoResponse() throws Exception {
+    final var request = new BulkTranslateTextDtoRequest(List.of(), "ru", "en");
+
+    final var mvcResult =
+        mockMvc
+            .perform(
+                post(TRANSLATE_TEXTS_API_URL)
+                    .characterEncoding(StandardCharsets.UTF_8)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(JsonConverter.objectToJson(request)))
+            .andReturn();
+
+    Assertions.assertEquals(400, mvcResult.getResponse().getStatus());
+  }
 }
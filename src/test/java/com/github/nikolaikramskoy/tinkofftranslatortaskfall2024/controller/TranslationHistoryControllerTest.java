@@ -0,0 +1,278 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.controller.utility.JsonConverter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslationDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslationsDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.TranslationFilter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.ClientRateLimiter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationHistoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(
+    controllers = TranslationHistoryController.class,
+    properties =
+        "translator.translation-history.access-token="
+            + TranslationHistoryControllerTest.ACCESS_TOKEN)
+// RequestBodySizeLimitAdvice records body sizes
+@Import({ClientIpResolver.class, SimpleMeterRegistry.class})
+class TranslationHistoryControllerTest {
+
+  static final String ACCESS_TOKEN = "some-access-token";
+
+  private static final String FIND_TRANSLATIONS_API_URL = "/v1/translations";
+  private static final String EXPORT_TRANSLATIONS_API_URL = "/v1/translations/export";
+
+  private static final TranslationDto TRANSLATION_DTO =
+      new TranslationDto(
+          UUID.randomUUID(),
+          "10.0.0.1",
+          LocalDateTime.of(2024, 8, 10, 12, 0),
+          "ru",
+          "en",
+          "привет",
+          "hello");
+
+  @Autowired private MockMvc mockMvc;
+
+  @MockBean private TranslationHistoryService translationHistoryServiceMock;
+
+  @MockBean private ClientRateLimiter clientRateLimiterMock;
+
+  @Test
+  void testFindTranslations_validRequest_returnDtoResponse() throws Exception {
+    final var filter =
+        new TranslationFilter(
+            "10.0.0.1",
+            "ru",
+            "en",
+            LocalDateTime.of(2024, 8, 10, 0, 0),
+            LocalDateTime.of(2024, 8, 11, 0, 0));
+
+    when(translationHistoryServiceMock.findTranslations(filter, "cursor", 10))
+        .thenReturn(new TranslationsDtoResponse(List.of(TRANSLATION_DTO), "nextCursor"));
+
+    final var response =
+        mockMvc
+            .perform(
+                get(FIND_TRANSLATIONS_API_URL)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + ACCESS_TOKEN)
+                    .param("clientIp", "10.0.0.1")
+                    .param("sourceLanguage", "ru")
+                    .param("targetLanguage", "en")
+                    .param("from", "2024-08-10T00:00:00")
+                    .param("to", "2024-08-11T00:00:00")
+                    .param("cursor", "cursor")
+                    .param("limit", "10"))
+            .andReturn()
+            .getResponse();
+
+    Assertions.assertEquals(200, response.getStatus());
+
+    final var actual =
+        JsonConverter.jsonToObject(
+            response.getContentAsString(StandardCharsets.UTF_8), TranslationsDtoResponse.class);
+
+    Assertions.assertEquals(List.of(TRANSLATION_DTO), actual.translations());
+    Assertions.assertEquals("nextCursor", actual.nextCursor());
+  }
+
+  @Test
+  void testFindTranslations_missingAccessToken_returnForbidden() throws Exception {
+    final var response = mockMvc.perform(get(FIND_TRANSLATIONS_API_URL)).andReturn().getResponse();
+
+    Assertions.assertEquals(403, response.getStatus());
+    verify(translationHistoryServiceMock, never()).findTranslations(any(), any(), anyInt());
+  }
+
+  @Test
+  void testExportTranslations_wrongAccessToken_returnForbidden() throws Exception {
+    final var response =
+        mockMvc
+            .perform(
+                get(EXPORT_TRANSLATIONS_API_URL)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + ACCESS_TOKEN + "-guess"))
+            .andReturn()
+            .getResponse();
+
+    Assertions.assertEquals(403, response.getStatus());
+    verify(translationHistoryServiceMock, never()).exportTranslations(any(), any());
+  }
+
+  @Test
+  void testFindTranslations_clientRateLimitExceeded_returnTooManyRequests() throws Exception {
+    when(clientRateLimiterMock.tryAcquire(any(String.class)))
+        .thenReturn(Duration.ofMillis(1500).toNanos());
+
+    final var response =
+        mockMvc
+            .perform(
+                get(FIND_TRANSLATIONS_API_URL)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + ACCESS_TOKEN))
+            .andReturn()
+            .getResponse();
+
+    Assertions.assertEquals(429, response.getStatus());
+    verify(translationHistoryServiceMock, never()).findTranslations(any(), any(), anyInt());
+  }
+
+  @Test
+  void testFindTranslations_tooLargeLimit_returnBadRequest() throws Exception {
+    final var response =
+        mockMvc
+            .perform(
+                get(FIND_TRANSLATIONS_API_URL)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + ACCESS_TOKEN)
+                    .param("limit", "1001"))
+            .andReturn()
+            .getResponse();
+
+    Assertions.assertEquals(400, response.getStatus());
+  }
+
+  @Test
+  void testExportTranslations_validRequest_returnNdjsonTranslations() throws Exception {
+    final var filter = new TranslationFilter(null, "ru", null, null, null);
+
+    doAnswer(
+            invocation -> {
+              final Consumer<TranslationDto> consumer = invocation.getArgument(1);
+
+              consumer.accept(TRANSLATION_DTO);
+              consumer.accept(TRANSLATION_DTO);
+
+              return null;
+            })
+        .when(translationHistoryServiceMock)
+        .exportTranslations(eq(filter), any());
+
+    final var mvcResult =
+        mockMvc
+            .perform(
+                get(EXPORT_TRANSLATIONS_API_URL)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + ACCESS_TOKEN)
+                    .param("sourceLanguage", "ru"))
+            .andReturn();
+
+    final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+    Assertions.assertEquals(200, response.getStatus());
+    Assertions.assertEquals(MediaType.APPLICATION_NDJSON_VALUE, response.getContentType());
+
+    final var actual = new ArrayList<TranslationDto>();
+
+    for (final var line : response.getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+      actual.add(JsonConverter.jsonToObject(line, TranslationDto.class));
+    }
+
+    Assertions.assertEquals(List.of(TRANSLATION_DTO, TRANSLATION_DTO), actual);
+  }
+
+  @Test
+  void testExportTranslations_manyConcurrentExports_writeAllAtOnce() throws Exception {
+    // more than 8 threads of Spring Boot's default task executor
+    final var exportCount = 20;
+    final var exportsWriting = new CountDownLatch(exportCount);
+
+    doAnswer(
+            invocation -> {
+              exportsWriting.countDown();
+
+              // every export waits until all of them are written at once
+              if (!exportsWriting.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("exports are written one by one");
+              }
+
+              invocation.<Consumer<TranslationDto>>getArgument(1).accept(TRANSLATION_DTO);
+
+              return null;
+            })
+        .when(translationHistoryServiceMock)
+        .exportTranslations(any(), any());
+
+    final var mvcResults = new ArrayList<MvcResult>();
+
+    for (var i = 0; i < exportCount; ++i) {
+      mvcResults.add(
+          mockMvc
+              .perform(
+                  get(EXPORT_TRANSLATIONS_API_URL)
+                      .header(HttpHeaders.AUTHORIZATION, "Bearer " + ACCESS_TOKEN))
+              .andReturn());
+    }
+
+    for (final var mvcResult : mvcResults) {
+      final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+      Assertions.assertEquals(
+          TRANSLATION_DTO,
+          JsonConverter.jsonToObject(
+              response.getContentAsString(StandardCharsets.UTF_8).trim(), TranslationDto.class));
+    }
+  }
+
+  @Test
+  void testExportTranslations_unexpectedErrorMidStream_returnErrorAsLastLine() throws Exception {
+    doAnswer(
+            invocation -> {
+              final Consumer<TranslationDto> consumer = invocation.getArgument(1);
+
+              consumer.accept(TRANSLATION_DTO);
+
+              throw new IllegalStateException("unexpected");
+            })
+        .when(translationHistoryServiceMock)
+        .exportTranslations(any(), any());
+
+    final var mvcResult =
+        mockMvc
+            .perform(
+                get(EXPORT_TRANSLATIONS_API_URL)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + ACCESS_TOKEN))
+            .andReturn();
+
+    final var response = mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+
+    Assertions.assertEquals(200, response.getStatus());
+
+    final var lines = response.getContentAsString(StandardCharsets.UTF_8).split("\n");
+
+    Assertions.assertEquals(2, lines.length);
+    Assertions.assertEquals(
+        TRANSLATION_DTO, JsonConverter.jsonToObject(lines[0], TranslationDto.class));
+    Assertions.assertEquals(
+        new ErrorDtoResponse(Collections.singletonList(new ErrorDto("unexpected"))),
+        JsonConverter.jsonToObject(lines[1], ErrorDtoResponse.class));
+  }
+}
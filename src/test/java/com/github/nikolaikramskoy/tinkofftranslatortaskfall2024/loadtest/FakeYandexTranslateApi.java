@@ -0,0 +1,173 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.yandextranslate.YandexTranslateTranslateDtoRequest;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateLanguageDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateListLanguagesResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslateDtoResponse;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslationDto;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for {@code /languages} and {@code /translate} of Yandex Translate API.
+ *
+ * <p>Latency of every call is log-normally distributed around {@code latencyMedian}, {@code
+ * latencySigma} controls its tail (0 means constant latency). After the latency, call fails with
+ * 500 with probability {@code errorRate} or with 429 with probability {@code throttleRate},
+ * otherwise every text is "translated" by prepending target language code to it.
+ */
+public class FakeYandexTranslateApi implements AutoCloseable {
+
+  private static final List<YandexTranslateLanguageDto> LANGUAGES =
+      List.of(
+          new YandexTranslateLanguageDto("ru", "русский"),
+          new YandexTranslateLanguageDto("en", "English"),
+          new YandexTranslateLanguageDto("de", "Deutsch"),
+          new YandexTranslateLanguageDto("fr", "français"));
+
+  private final Duration latencyMedian;
+  private final double latencySigma;
+  private final double errorRate;
+  private final double throttleRate;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final HttpServer server;
+
+  private final AtomicLong translateCalls = new AtomicLong();
+  private final AtomicLong translatedTexts = new AtomicLong();
+  private final AtomicLong failedCalls = new AtomicLong();
+  private final AtomicLong throttledCalls = new AtomicLong();
+  private final AtomicLong listLanguagesCalls = new AtomicLong();
+
+  public FakeYandexTranslateApi(
+      final Duration latencyMedian,
+      final double latencySigma,
+      final double errorRate,
+      final double throttleRate)
+      throws IOException {
+    this.latencyMedian = latencyMedian;
+    this.latencySigma = latencySigma;
+    this.errorRate = errorRate;
+    this.throttleRate = throttleRate;
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+    server.setExecutor(executor);
+    server.createContext("/languages", this::handleListLanguages);
+    server.createContext("/translate", this::handleTranslate);
+    server.start();
+  }
+
+  public String getUrl() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  public long getTranslateCalls() {
+    return translateCalls.get();
+  }
+
+  public long getTranslatedTexts() {
+    return translatedTexts.get();
+  }
+
+  public long getFailedCalls() {
+    return failedCalls.get();
+  }
+
+  public long getThrottledCalls() {
+    return throttledCalls.get();
+  }
+
+  public long getListLanguagesCalls() {
+    return listLanguagesCalls.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.close();
+  }
+
+  private void handleListLanguages(final HttpExchange exchange) throws IOException {
+    try (exchange) {
+      listLanguagesCalls.incrementAndGet();
+
+      respond(exchange, 200, new YandexTranslateListLanguagesResponse(LANGUAGES, null));
+    }
+  }
+
+  private void handleTranslate(final HttpExchange exchange) throws IOException {
+    try (exchange) {
+      translateCalls.incrementAndGet();
+
+      final var request =
+          objectMapper.readValue(
+              exchange.getRequestBody(), YandexTranslateTranslateDtoRequest.class);
+
+      if (!sleepLatency()) {
+        return;
+      }
+
+      final var random = ThreadLocalRandom.current().nextDouble();
+
+      if (random < errorRate) {
+        failedCalls.incrementAndGet();
+        respond(exchange, 500, new YandexTranslateTranslateDtoResponse(null, "Internal error"));
+      } else if (random < errorRate + throttleRate) {
+        throttledCalls.incrementAndGet();
+        respond(exchange, 429, new YandexTranslateTranslateDtoResponse(null, "Too many requests"));
+      } else {
+        translatedTexts.addAndGet(request.texts().size());
+        respond(
+            exchange,
+            200,
+            new YandexTranslateTranslateDtoResponse(
+                request.texts().stream()
+                    .map(
+                        text ->
+                            new YandexTranslateTranslationDto(
+                                request.targetLanguageCode() + ":" + text))
+                    .toList(),
+                null));
+      }
+    }
+  }
+
+  private boolean sleepLatency() {
+    final var latencyNanos =
+        (long)
+            (latencyMedian.toNanos()
+                * Math.exp(latencySigma * ThreadLocalRandom.current().nextGaussian()));
+
+    try {
+      Thread.sleep(Duration.ofNanos(latencyNanos));
+
+      return true;
+    } catch (final InterruptedException e) {
+      // server is stopping
+      Thread.currentThread().interrupt();
+
+      return false;
+    }
+  }
+
+  private void respond(final HttpExchange exchange, final int status, final Object body)
+      throws IOException {
+    final var bytes = objectMapper.writeValueAsBytes(body);
+
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+}
@@ -0,0 +1,143 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop load generator: requests are sent at a fixed rate no matter how fast responses come, so
+ * a slow server doesn't slow the load down and hide its own latency (coordinated omission). Latency
+ * of every request is measured from the moment it was scheduled to be sent, not from the moment it
+ * was actually sent.
+ *
+ * <p>Requests that failed without HTTP response (e.g. connection refused or timed out) are counted
+ * with status 0.
+ */
+public class LoadGenerator {
+
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+  private final HttpClient httpClient =
+      HttpClient.newBuilder()
+          // no h2c upgrade attempts, Tomcat serves plain HTTP/1.1
+          .version(HttpClient.Version.HTTP_1_1)
+          .executor(Executors.newVirtualThreadPerTaskExecutor())
+          .connectTimeout(Duration.ofSeconds(5))
+          .build();
+
+  private final URI uri;
+  private final Supplier<String> bodySupplier;
+
+  public LoadGenerator(final URI uri, final Supplier<String> bodySupplier) {
+    this.uri = uri;
+    this.bodySupplier = bodySupplier;
+  }
+
+  public Report run(final int requestsPerSecond, final Duration duration) {
+    final var requests = (int) (requestsPerSecond * duration.toNanos() / 1_000_000_000L);
+    final var intervalNanos = 1_000_000_000L / requestsPerSecond;
+
+    final var latenciesNanos = new AtomicLongArray(requests);
+    final var completed = new AtomicInteger();
+    final var statuses = new ConcurrentHashMap<Integer, AtomicInteger>();
+
+    final var start = System.nanoTime();
+
+    try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var i = 0; i < requests; ++i) {
+        final var scheduledAt = start + i * intervalNanos;
+        final var request =
+            HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(bodySupplier.get()))
+                .build();
+
+        LockSupport.parkNanos(scheduledAt - System.nanoTime());
+
+        final var index = i;
+        executor.execute(
+            () -> {
+              final var status = send(request);
+
+              latenciesNanos.set(index, System.nanoTime() - scheduledAt);
+              statuses.computeIfAbsent(status, key -> new AtomicInteger()).incrementAndGet();
+              completed.incrementAndGet();
+            });
+      }
+    }
+
+    final var elapsedNanos = System.nanoTime() - start;
+
+    final var sortedLatenciesNanos = new long[requests];
+    for (var i = 0; i < requests; ++i) {
+      sortedLatenciesNanos[i] = latenciesNanos.get(i);
+    }
+    Arrays.sort(sortedLatenciesNanos);
+
+    final var statusCounts = new TreeMap<Integer, Integer>();
+    statuses.forEach((status, count) -> statusCounts.put(status, count.get()));
+
+    return new Report(
+        requests,
+        completed.get(),
+        Duration.ofNanos(elapsedNanos),
+        statusCounts,
+        percentile(sortedLatenciesNanos, 0.5),
+        percentile(sortedLatenciesNanos, 0.95),
+        percentile(sortedLatenciesNanos, 0.99),
+        percentile(sortedLatenciesNanos, 1.0));
+  }
+
+  private int send(final HttpRequest request) {
+    try {
+      return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      return 0;
+    } catch (final Exception e) {
+      return 0;
+    }
+  }
+
+  private static Duration percentile(final long[] sortedNanos, final double percentile) {
+    if (sortedNanos.length == 0) {
+      return Duration.ZERO;
+    }
+
+    final var index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+
+    return Duration.ofNanos(sortedNanos[Math.max(index, 0)]);
+  }
+
+  public record Report(
+      int requests,
+      int completed,
+      Duration elapsed,
+      Map<Integer, Integer> statusCounts,
+      Duration p50,
+      Duration p95,
+      Duration p99,
+      Duration max) {
+
+    public double throughput() {
+      return completed * 1e9 / elapsed.toNanos();
+    }
+
+    public int countOf(final int status) {
+      return statusCounts.getOrDefault(status, 0);
+    }
+  }
+}
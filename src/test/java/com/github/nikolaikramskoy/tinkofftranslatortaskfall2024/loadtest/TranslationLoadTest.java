@@ -0,0 +1,158 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.loadtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Drives {@code POST /v1/translate} of the whole application at a fixed rate against {@link
+ * FakeYandexTranslateApi} and Postgres in Testcontainers, and logs throughput, latency percentiles
+ * and the number of calls that reached Yandex Translate API.
+ *
+ * <p>It's excluded from the default build, run it with {@code mvn test -P loadtest}. Load and fake
+ * Yandex Translate API are tuned with {@code loadtest.*} system properties, e.g. {@code
+ * -Dloadtest.rps=500 -Dloadtest.upstream.error-rate=0.05}.
+ */
+@Tag("loadtest")
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+      "YANDEX_API_KEY=load-test",
+      // every request comes from the same IP address
+      "translator.client-rate-limit.enabled=false",
+      "translator.yandex-translate-api.quota.requests-per-second="
+          + "${loadtest.quota.requests-per-second:1000000}",
+      "translator.yandex-translate-api.quota.characters-per-second="
+          + "${loadtest.quota.characters-per-second:1000000000}"
+    })
+@Testcontainers(disabledWithoutDocker = true)
+@Slf4j
+class TranslationLoadTest {
+
+  private static final int REQUESTS_PER_SECOND = Integer.getInteger("loadtest.rps", 200);
+  private static final Duration DURATION =
+      Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+  private static final Duration WARMUP =
+      Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+  private static final int WORDS_PER_TEXT = Integer.getInteger("loadtest.words-per-text", 10);
+  // smaller vocabulary means more word translation cache hits
+  private static final int VOCABULARY_SIZE = Integer.getInteger("loadtest.vocabulary-size", 10_000);
+
+  private static final Duration UPSTREAM_LATENCY_MEDIAN =
+      Duration.parse(System.getProperty("loadtest.upstream.latency-median", "PT0.05S"));
+  private static final double UPSTREAM_LATENCY_SIGMA =
+      Double.parseDouble(System.getProperty("loadtest.upstream.latency-sigma", "0.5"));
+  private static final double UPSTREAM_ERROR_RATE =
+      Double.parseDouble(System.getProperty("loadtest.upstream.error-rate", "0"));
+  private static final double UPSTREAM_THROTTLE_RATE =
+      Double.parseDouble(System.getProperty("loadtest.upstream.throttle-rate", "0"));
+
+  @Container
+  private static final PostgreSQLContainer<?> POSTGRES =
+      new PostgreSQLContainer<>("postgres:16-alpine");
+
+  private static final FakeYandexTranslateApi YANDEX_TRANSLATE_API = startFakeYandexTranslateApi();
+
+  @LocalServerPort private int port;
+
+  @DynamicPropertySource
+  static void loadTestProperties(final DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+    registry.add("spring.datasource.username", POSTGRES::getUsername);
+    registry.add("spring.datasource.password", POSTGRES::getPassword);
+    registry.add("YANDEX_TRANSLATE_API_URL", YANDEX_TRANSLATE_API::getUrl);
+  }
+
+  @AfterAll
+  static void stopFakeYandexTranslateApi() {
+    YANDEX_TRANSLATE_API.close();
+  }
+
+  @Test
+  void loadTranslateText() {
+    final var loadGenerator =
+        new LoadGenerator(
+            URI.create("http://localhost:" + port + "/v1/translate"),
+            TranslationLoadTest::createRequestBody);
+
+    // JIT compilation, connection pools and word translation cache
+    loadGenerator.run(REQUESTS_PER_SECOND, WARMUP);
+
+    final var translateCallsBefore = YANDEX_TRANSLATE_API.getTranslateCalls();
+    final var translatedTextsBefore = YANDEX_TRANSLATE_API.getTranslatedTexts();
+    final var failedCallsBefore = YANDEX_TRANSLATE_API.getFailedCalls();
+    final var throttledCallsBefore = YANDEX_TRANSLATE_API.getThrottledCalls();
+
+    final var report = loadGenerator.run(REQUESTS_PER_SECOND, DURATION);
+
+    final var translateCalls = YANDEX_TRANSLATE_API.getTranslateCalls() - translateCallsBefore;
+
+    log.info(
+        "{} requests at {} rps: {} rps achieved, statuses {}",
+        report.requests(),
+        REQUESTS_PER_SECOND,
+        Math.round(report.throughput()),
+        report.statusCounts());
+    log.info(
+        "latency p50 {} ms, p95 {} ms, p99 {} ms, max {} ms",
+        report.p50().toMillis(),
+        report.p95().toMillis(),
+        report.p99().toMillis(),
+        report.max().toMillis());
+    log.info(
+        "Yandex Translate API: {} translate calls ({} per request) with {} texts,"
+            + " {} failed, {} throttled",
+        translateCalls,
+        String.format("%.2f", (double) translateCalls / report.requests()),
+        YANDEX_TRANSLATE_API.getTranslatedTexts() - translatedTextsBefore,
+        YANDEX_TRANSLATE_API.getFailedCalls() - failedCallsBefore,
+        YANDEX_TRANSLATE_API.getThrottledCalls() - throttledCallsBefore);
+
+    Assertions.assertEquals(report.requests(), report.completed());
+    // 0 means that request failed without HTTP response
+    Assertions.assertEquals(0, report.countOf(0));
+
+    if (UPSTREAM_ERROR_RATE == 0 && UPSTREAM_THROTTLE_RATE == 0) {
+      Assertions.assertEquals(report.requests(), report.countOf(200));
+    }
+  }
+
+  private static String createRequestBody() {
+    final var random = ThreadLocalRandom.current();
+
+    final var text =
+        IntStream.range(0, WORDS_PER_TEXT)
+            .mapToObj(i -> "слово" + random.nextInt(VOCABULARY_SIZE))
+            .collect(Collectors.joining(" "));
+
+    return "{\"text\":\"" + text + "\",\"sourceLanguage\":\"ru\",\"targetLanguage\":\"en\"}";
+  }
+
+  private static FakeYandexTranslateApi startFakeYandexTranslateApi() {
+    try {
+      return new FakeYandexTranslateApi(
+          UPSTREAM_LATENCY_MEDIAN,
+          UPSTREAM_LATENCY_SIGMA,
+          UPSTREAM_ERROR_RATE,
+          UPSTREAM_THROTTLE_RATE);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
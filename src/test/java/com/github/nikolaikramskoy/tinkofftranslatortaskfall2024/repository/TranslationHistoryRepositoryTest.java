@@ -0,0 +1,143 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslationDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.TranslationFilter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationHistoryService;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TranslationRepository.class, TranslationHistoryRepository.class})
+@Testcontainers(disabledWithoutDocker = true)
+class TranslationHistoryRepositoryTest {
+
+  private static final TranslationFilter ANY_FILTER =
+      new TranslationFilter(null, null, null, null, null);
+
+  // today's partition and the default one, with many translations of the same microsecond
+  private static final LocalDateTime TODAY =
+      LocalDateTime.now().truncatedTo(ChronoUnit.MICROS).withHour(12);
+  private static final LocalDateTime LONG_AGO = LocalDateTime.of(2024, 8, 10, 12, 0, 0, 123_000);
+
+  private static final int PAGE_SIZE = 3;
+
+  // PostgreSQL compares uuid bytes as unsigned, like their hex strings are compared
+  private static final Comparator<Translation> NEWEST_FIRST =
+      Comparator.comparing(Translation::timestamp)
+          .thenComparing(translation -> translation.id().toString())
+          .reversed();
+
+  @Container
+  private static final PostgreSQLContainer<?> POSTGRES =
+      new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired private TranslationRepository translationRepository;
+
+  @Autowired private TranslationHistoryRepository translationHistoryRepository;
+
+  private TranslationHistoryService translationHistoryService;
+
+  private List<Translation> translations;
+
+  @DynamicPropertySource
+  static void postgresProperties(final DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+    registry.add("spring.datasource.username", POSTGRES::getUsername);
+    registry.add("spring.datasource.password", POSTGRES::getPassword);
+  }
+
+  @BeforeEach
+  public void saveTranslations() {
+    translationHistoryService =
+        new TranslationHistoryService(translationHistoryRepository, PAGE_SIZE);
+    translations = new ArrayList<>();
+
+    for (var i = 0; i < 10; ++i) {
+      translations.add(createTranslation(TODAY, "10.0.0." + (i % 2), "привет " + i));
+      translations.add(createTranslation(LONG_AGO, "10.0.0." + (i % 2), "пока " + i));
+    }
+    translations.add(createTranslation(TODAY.plusNanos(1_000), "10.0.0.1", "привет"));
+    translations.add(createTranslation(LONG_AGO.minusNanos(1_000), "10.0.0.1", "пока"));
+
+    translationRepository.saveTranslations(translations);
+    translations.sort(NEWEST_FIRST);
+  }
+
+  @Test
+  void testFindTranslations_equalTimestamps_pageThroughWithoutGapsAndDuplicates() {
+    Assertions.assertEquals(translations, findAllPages(ANY_FILTER));
+  }
+
+  @Test
+  void testFindTranslations_filter_pageThroughMatchingTranslations() {
+    final var filter =
+        new TranslationFilter("10.0.0.1", "ru", "en", LONG_AGO, TODAY.plusNanos(1_000));
+
+    Assertions.assertEquals(
+        translations.stream()
+            .filter(translation -> translation.clientIp().equals("10.0.0.1"))
+            .filter(translation -> !translation.timestamp().isBefore(LONG_AGO))
+            .filter(translation -> translation.timestamp().isBefore(TODAY.plusNanos(1_000)))
+            .toList(),
+        findAllPages(filter));
+  }
+
+  @Test
+  void testExportTranslations_equalTimestamps_returnTheSameTranslationsAsPages() {
+    final var exported = new ArrayList<Translation>();
+
+    translationHistoryService.exportTranslations(
+        ANY_FILTER, translation -> exported.add(toTranslation(translation)));
+
+    Assertions.assertEquals(findAllPages(ANY_FILTER), exported);
+  }
+
+  private List<Translation> findAllPages(final TranslationFilter filter) {
+    final var found = new ArrayList<Translation>();
+    String cursor = null;
+
+    do {
+      final var page = translationHistoryService.findTranslations(filter, cursor, PAGE_SIZE);
+
+      page.translations().forEach(translation -> found.add(toTranslation(translation)));
+      cursor = page.nextCursor();
+    } while (cursor != null);
+
+    return found;
+  }
+
+  private static Translation createTranslation(
+      final LocalDateTime timestamp, final String clientIp, final String text) {
+    return new Translation(
+        UUID.randomUUID(), clientIp, timestamp, "ru", "en", text, text + " translated");
+  }
+
+  private static Translation toTranslation(final TranslationDto translation) {
+    return new Translation(
+        translation.id(),
+        translation.clientIp(),
+        translation.timestamp(),
+        translation.sourceLanguage(),
+        translation.targetLanguage(),
+        translation.text(),
+        translation.translatedText());
+  }
+}
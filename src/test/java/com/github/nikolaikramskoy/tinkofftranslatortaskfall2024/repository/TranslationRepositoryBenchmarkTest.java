@@ -0,0 +1,304 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.UuidV7Generator;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Compares insert throughput of single-row and batched paths of {@link TranslationRepository},
+ * growth of {@code translation_pkey} index and WAL with random UUIDv4 and time-ordered UUIDv7 keys,
+ * and size of tables and WAL with texts stored in every row and once in {@code translation_text}.
+ *
+ * <p>It's excluded from the default build, run it with {@code mvn test -P benchmark}.
+ */
+@Tag("benchmark")
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TranslationRepository.class)
+// every insert path manages transactions itself, like it does in the application
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+@Slf4j
+class TranslationRepositoryBenchmarkTest {
+
+  private static final int SINGLE_INSERT_ROWS = 2_000;
+  private static final int BATCH_INSERT_ROWS = 20_000;
+  private static final int BATCH_SIZE = 100;
+  private static final int COPY_BATCH_SIZE = 10_000;
+  private static final int INDEX_GROWTH_ROWS = 200_000;
+  private static final int REPEATED_TEXTS_ROWS = 50_000;
+  private static final int DISTINCT_TEXTS = 500;
+
+  private static final String REPEATED_TEXT =
+      "Добрый день! Подскажите, пожалуйста, как пройти к ближайшей станции метро и сколько"
+          + " времени займёт дорога пешком? ";
+  private static final String REPEATED_TRANSLATED_TEXT =
+      "Good afternoon! Could you please tell me how to get to the nearest metro station and how"
+          + " long it takes to walk there? ";
+
+  // translation as it was before texts were moved into translation_text, with the same key and
+  // indexes, so only storage of texts differs
+  private static final List<String> CREATE_INLINE_TEXTS_TABLE_QUERIES =
+      List.of(
+          "DROP TABLE IF EXISTS translation_inline_texts",
+          "CREATE TABLE translation_inline_texts (id uuid NOT NULL, client_ip inet NOT NULL,"
+              + " \"timestamp\" TIMESTAMP NOT NULL, source_language TEXT NOT NULL,"
+              + " target_language TEXT NOT NULL, text TEXT NOT NULL, translated_text TEXT NOT"
+              + " NULL, PRIMARY KEY (id, \"timestamp\"))",
+          "CREATE INDEX ON translation_inline_texts (\"timestamp\", id)",
+          "CREATE INDEX ON translation_inline_texts (client_ip, \"timestamp\", id)",
+          "CREATE INDEX ON translation_inline_texts (source_language, target_language,"
+              + " \"timestamp\", id)");
+
+  private static final String SAVE_INLINE_TEXTS_TRANSLATION_QUERY =
+      "INSERT INTO translation_inline_texts VALUES (?, CAST(? AS inet), ?, ?, ?, ?, ?) ON CONFLICT"
+          + " DO NOTHING";
+
+  private static final String INLINE_TEXTS_SIZE_QUERY =
+      "SELECT pg_total_relation_size('translation_inline_texts')";
+
+  private static final String DEDUPLICATED_TEXTS_SIZE_QUERY =
+      "SELECT (SELECT sum(pg_total_relation_size(relid)) FROM pg_partition_tree('translation'))"
+          + " + pg_total_relation_size('translation_text')";
+
+  // translation_pkey is partitioned, its size is the total size of its partitions
+  private static final String TRANSLATION_PKEY_SIZE_QUERY =
+      "SELECT sum(pg_relation_size(relid)) FROM pg_partition_tree('translation_pkey')";
+
+  private static final UuidV7Generator UUID_V7_GENERATOR = new UuidV7Generator(Clock.systemUTC());
+
+  @Container
+  private static final PostgreSQLContainer<?> POSTGRES =
+      new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired private TranslationRepository translationRepository;
+
+  @Autowired private JdbcClient jdbcClient;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @DynamicPropertySource
+  static void postgresProperties(final DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+    registry.add("spring.datasource.username", POSTGRES::getUsername);
+    registry.add("spring.datasource.password", POSTGRES::getPassword);
+  }
+
+  @Test
+  void benchmarkSaveTranslation() {
+    measure(
+        "saveTranslation",
+        createTranslations(SINGLE_INSERT_ROWS),
+        translations -> translations.forEach(translationRepository::saveTranslation));
+  }
+
+  @Test
+  void benchmarkSaveTranslationsWithMultiRowInsert() {
+    measure(
+        "saveTranslations (multi-row INSERT)",
+        createTranslations(BATCH_INSERT_ROWS),
+        translations -> saveInBatches(translations, BATCH_SIZE));
+  }
+
+  @Test
+  void benchmarkSaveTranslationsWithCopy() {
+    measure(
+        "saveTranslations (COPY)",
+        createTranslations(BATCH_INSERT_ROWS),
+        translations -> saveInBatches(translations, COPY_BATCH_SIZE));
+  }
+
+  @Test
+  void benchmarkIndexGrowthWithRandomUuids() {
+    measureIndexGrowth("UUIDv4", createTranslations(INDEX_GROWTH_ROWS, UUID::randomUUID));
+  }
+
+  @Test
+  void benchmarkIndexGrowthWithUuidV7() {
+    measureIndexGrowth(
+        "UUIDv7", createTranslations(INDEX_GROWTH_ROWS, UUID_V7_GENERATOR::generate));
+  }
+
+  @Test
+  void benchmarkStorageWithInlineTexts() {
+    final var translations = createTranslationsWithRepeatedTexts();
+
+    CREATE_INLINE_TEXTS_TABLE_QUERIES.forEach(query -> jdbcClient.sql(query).update());
+
+    measureStorage(
+        "inline texts",
+        INLINE_TEXTS_SIZE_QUERY,
+        () -> {
+          for (var from = 0; from < translations.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(
+                SAVE_INLINE_TEXTS_TRANSLATION_QUERY,
+                translations.subList(from, Math.min(from + BATCH_SIZE, translations.size())),
+                BATCH_SIZE,
+                (statement, translation) -> {
+                  statement.setObject(1, translation.id());
+                  statement.setString(2, translation.clientIp());
+                  statement.setObject(3, translation.timestamp());
+                  statement.setString(4, translation.sourceLanguage());
+                  statement.setString(5, translation.targetLanguage());
+                  statement.setString(6, translation.text());
+                  statement.setString(7, translation.translatedText());
+                });
+          }
+        });
+  }
+
+  @Test
+  void benchmarkStorageWithDeduplicatedTexts() {
+    final var translations = createTranslationsWithRepeatedTexts();
+
+    jdbcClient.sql("TRUNCATE translation, translation_text").update();
+
+    measureStorage(
+        "deduplicated texts",
+        DEDUPLICATED_TEXTS_SIZE_QUERY,
+        () -> saveInBatches(translations, BATCH_SIZE));
+  }
+
+  private void measureIndexGrowth(final String name, final List<Translation> translations) {
+    final var walStart = currentWalLsn();
+
+    // the same batch size as write-behind queue uses
+    measure(name, translations, batch -> saveInBatches(batch, BATCH_SIZE));
+
+    log.info(
+        "{}: translation_pkey is {} kB, {} kB of WAL",
+        name,
+        jdbcClient.sql(TRANSLATION_PKEY_SIZE_QUERY).query(Long.class).single() / 1024,
+        walBytesSince(walStart) / 1024);
+  }
+
+  private void measureStorage(final String name, final String sizeQuery, final Runnable insert) {
+    // every variant starts with full-page writes of the pages it touches
+    jdbcClient.sql("CHECKPOINT").update();
+
+    final var walStart = currentWalLsn();
+    final var start = System.nanoTime();
+    insert.run();
+    final var elapsedNanos = System.nanoTime() - start;
+
+    log.info(
+        "{}: {} rows in {} ms, tables are {} kB, {} kB of WAL",
+        name,
+        REPEATED_TEXTS_ROWS,
+        elapsedNanos / 1_000_000,
+        jdbcClient.sql(sizeQuery).query(Long.class).single() / 1024,
+        walBytesSince(walStart) / 1024);
+  }
+
+  private String currentWalLsn() {
+    return jdbcClient.sql("SELECT pg_current_wal_insert_lsn()::text").query(String.class).single();
+  }
+
+  private long walBytesSince(final String walStart) {
+    return jdbcClient
+        .sql("SELECT pg_wal_lsn_diff(pg_current_wal_insert_lsn(), CAST(:walStart AS pg_lsn))")
+        .param("walStart", walStart)
+        .query(Long.class)
+        .single();
+  }
+
+  private void saveInBatches(final List<Translation> translations, final int batchSize) {
+    for (var from = 0; from < translations.size(); from += batchSize) {
+      final var outcomes =
+          translationRepository.saveTranslations(
+              translations.subList(from, Math.min(from + batchSize, translations.size())));
+
+      Assertions.assertTrue(Arrays.stream(outcomes).allMatch(outcome -> outcome == 1));
+    }
+  }
+
+  private void measure(
+      final String name,
+      final List<Translation> translations,
+      final Consumer<List<Translation>> insert) {
+    jdbcClient.sql("TRUNCATE translation, translation_text").update();
+
+    final var start = System.nanoTime();
+    insert.accept(translations);
+    final var elapsedNanos = System.nanoTime() - start;
+
+    Assertions.assertEquals(
+        translations.size(),
+        jdbcClient.sql("SELECT count(*) FROM translation").query(Long.class).single());
+
+    log.info(
+        "{}: {} rows in {} ms, {} rows/sec",
+        name,
+        translations.size(),
+        elapsedNanos / 1_000_000,
+        Math.round(translations.size() * 1e9 / elapsedNanos));
+  }
+
+  private static List<Translation> createTranslations(final int count) {
+    return createTranslations(count, UUID_V7_GENERATOR::generate);
+  }
+
+  // popular texts are requested again and again within a day
+  private static List<Translation> createTranslationsWithRepeatedTexts() {
+    final var translations = new ArrayList<Translation>(REPEATED_TEXTS_ROWS);
+    final var timestamp = LocalDateTime.now();
+
+    for (var i = 0; i < REPEATED_TEXTS_ROWS; ++i) {
+      translations.add(
+          new Translation(
+              UUID_V7_GENERATOR.generate(),
+              "192.168.0." + (i % 256),
+              timestamp,
+              "ru",
+              "en",
+              REPEATED_TEXT + (i % DISTINCT_TEXTS),
+              REPEATED_TRANSLATED_TEXT + (i % DISTINCT_TEXTS)));
+    }
+
+    return translations;
+  }
+
+  private static List<Translation> createTranslations(
+      final int count, final Supplier<UUID> idGenerator) {
+    final var translations = new ArrayList<Translation>(count);
+    final var timestamp = LocalDateTime.now();
+
+    for (var i = 0; i < count; ++i) {
+      translations.add(
+          new Translation(
+              idGenerator.get(),
+              "192.168.0." + (i % 256),
+              timestamp,
+              "ru",
+              "en",
+              "привет всем\tи\\каждому " + i,
+              "hello everyone\nand everybody " + i));
+    }
+
+    return translations;
+  }
+}
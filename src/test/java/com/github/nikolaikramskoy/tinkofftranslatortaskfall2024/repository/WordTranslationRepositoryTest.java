@@ -0,0 +1,82 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(WordTranslationRepository.class)
+@Testcontainers(disabledWithoutDocker = true)
+class WordTranslationRepositoryTest {
+
+  @Container
+  private static final PostgreSQLContainer<?> POSTGRES =
+      new PostgreSQLContainer<>("postgres:16-alpine");
+
+  private static final int WORD_COUNT = 70_000;
+
+  @Autowired private WordTranslationRepository wordTranslationRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @DynamicPropertySource
+  static void postgresProperties(final DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+    registry.add("spring.datasource.username", POSTGRES::getUsername);
+    registry.add("spring.datasource.password", POSTGRES::getPassword);
+  }
+
+  @Test
+  void testFindTranslations_savedTranslations_returnOnlyThemForTheLanguagePair() {
+    wordTranslationRepository.saveTranslations(
+        "ru", "en", Map.of("привет", "hello", "мир", "world"), LocalDateTime.now());
+    wordTranslationRepository.saveTranslations(
+        "ru", "de", Map.of("привет", "hallo"), LocalDateTime.now());
+
+    final var actual =
+        wordTranslationRepository.findTranslations("ru", "en", Set.of("привет", "мир", "дом"));
+
+    Assertions.assertEquals(Map.of("привет", "hello", "мир", "world"), actual);
+  }
+
+  @Test
+  void testFindTranslations_moreWordsThanQueryParametersLimit_returnAllTranslations() {
+    // PostgreSQL allows at most 65535 parameters per query; rows are inserted by SQL, since
+    // saving is not what is tested here
+    jdbcTemplate.update(
+        "INSERT INTO word_translation (source_language, target_language, source_hash,"
+            + " source_text, translated_text, created_at) SELECT 'ru', 'en',"
+            + " sha256(convert_to('слово' || i, 'UTF8')), 'слово' || i, 'word' || i, now()"
+            + " FROM generate_series(0, ?) AS i",
+        WORD_COUNT - 1);
+    // as autovacuum would do, otherwise stale statistics make every query scan all rows
+    jdbcTemplate.execute("ANALYZE word_translation");
+
+    final var translations = new HashMap<String, String>();
+
+    for (var i = 0; i < WORD_COUNT; ++i) {
+      translations.put("слово" + i, "word" + i);
+    }
+
+    final var words = new HashSet<>(translations.keySet());
+    words.add("отсутствует");
+
+    Assertions.assertEquals(
+        translations, wordTranslationRepository.findTranslations("ru", "en", words));
+  }
+}
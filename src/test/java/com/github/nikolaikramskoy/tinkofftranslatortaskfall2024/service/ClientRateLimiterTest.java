@@ -0,0 +1,46 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ClientRateLimiterTest {
+
+  @Test
+  void testTryAcquire_burstExceeded_returnRetryAfter() {
+    final var limiter = new ClientRateLimiter(1, 3, 100);
+
+    for (var i = 0; i < 3; ++i) {
+      Assertions.assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+    }
+
+    final var retryAfterNanos = limiter.tryAcquire("1.2.3.4");
+
+    Assertions.assertTrue(retryAfterNanos > 0);
+    Assertions.assertTrue(retryAfterNanos <= Duration.ofSeconds(1).toNanos());
+  }
+
+  @Test
+  void testTryAcquire_differentClients_limitSeparately() {
+    final var limiter = new ClientRateLimiter(1, 1, 100);
+
+    Assertions.assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+    Assertions.assertTrue(limiter.tryAcquire("1.2.3.4") > 0);
+    Assertions.assertEquals(0, limiter.tryAcquire("5.6.7.8"));
+  }
+
+  @Test
+  void testTryAcquire_afterEmissionInterval_allowAgain() throws InterruptedException {
+    final var limiter = new ClientRateLimiter(10, 1, 100);
+
+    // so the first request of the tested client isn't slowed down by class loading
+    limiter.tryAcquire("5.6.7.8");
+
+    Assertions.assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+    Assertions.assertTrue(limiter.tryAcquire("1.2.3.4") > 0);
+
+    Thread.sleep(150);
+
+    Assertions.assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+  }
+}
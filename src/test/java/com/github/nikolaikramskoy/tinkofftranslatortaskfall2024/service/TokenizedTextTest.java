@@ -0,0 +1,54 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TokenizedTextTest {
+
+  @Test
+  void testTokenize_punctuationAndLineBreaks_keepThemInJoinedText() {
+    final var tokenizedText = TokenizedText.tokenize("  Привет, мир!\n\tКак дела?");
+
+    Assertions.assertEquals(List.of("Привет", "мир", "Как", "дела"), tokenizedText.getWords());
+    Assertions.assertEquals(
+        "  Hello, world!\n\tHow things?",
+        tokenizedText.join(new String[] {"Hello", "world", "How", "things"}));
+  }
+
+  @Test
+  void testTokenize_connectorsAndCombiningMarks_keepWordsWhole() {
+    final var tokenizedText = TokenizedText.tokenize("кто-то don't -да- 'нет' café");
+
+    Assertions.assertEquals(
+        List.of("кто-то", "don't", "да", "нет", "café"), tokenizedText.getWords());
+  }
+
+  @Test
+  void testTokenize_noWords_joinReturnsText() {
+    final var tokenizedText = TokenizedText.tokenize(" ?! \n");
+
+    Assertions.assertEquals(0, tokenizedText.getWordCount());
+    Assertions.assertEquals(" ?! \n", tokenizedText.join(new String[0]));
+  }
+
+  @Test
+  void testJoin_consecutiveRanges_makeWholeJoinedText() {
+    final var tokenizedText = TokenizedText.tokenize("(раз)  два, три.");
+
+    final var actual =
+        tokenizedText.join(0, 2, new String[] {"one", "two"})
+            + tokenizedText.join(2, 3, new String[] {"three"});
+
+    Assertions.assertEquals("(one)  two, three.", actual);
+    Assertions.assertEquals(actual, tokenizedText.join(new String[] {"one", "two", "three"}));
+  }
+
+  @Test
+  void testJoin_wrongNumberOfTranslatedWords_throwIllegalArgumentException() {
+    final var tokenizedText = TokenizedText.tokenize("раз два");
+
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> tokenizedText.join(new String[] {"one"}));
+  }
+}
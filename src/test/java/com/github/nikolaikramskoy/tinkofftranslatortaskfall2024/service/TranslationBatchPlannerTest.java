@@ -0,0 +1,42 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service.TranslationBatchPlanner.TranslationBatch;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TranslationBatchPlannerTest {
+
+  @Test
+  void testPlan_emptyWords_returnNoBatches() {
+    final var planner = new TranslationBatchPlanner(10, 100);
+
+    Assertions.assertEquals(List.of(), planner.plan(List.of()));
+  }
+
+  @Test
+  void testPlan_wordsFitInSingleRequest_returnSingleBatch() {
+    final var planner = new TranslationBatchPlanner(10, 100);
+
+    Assertions.assertEquals(
+        List.of(new TranslationBatch(0, 3)), planner.plan(List.of("one", "two", "three")));
+  }
+
+  @Test
+  void testPlan_tooManyWords_splitByTextsLimit() {
+    final var planner = new TranslationBatchPlanner(2, 100);
+
+    Assertions.assertEquals(
+        List.of(new TranslationBatch(0, 2), new TranslationBatch(2, 4), new TranslationBatch(4, 5)),
+        planner.plan(List.of("a", "b", "c", "d", "e")));
+  }
+
+  @Test
+  void testPlan_tooManyCharacters_splitByCharactersLimit() {
+    final var planner = new TranslationBatchPlanner(10, 6);
+
+    Assertions.assertEquals(
+        List.of(new TranslationBatch(0, 2), new TranslationBatch(2, 3), new TranslationBatch(3, 4)),
+        planner.plan(List.of("abc", "def", "ghijklmnop", "q")));
+  }
+}
@@ -0,0 +1,139 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationError;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.TranslationCursor;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.TranslationFilter;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationHistoryRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TranslationHistoryServiceTest {
+
+  private static final TranslationFilter ANY_FILTER =
+      new TranslationFilter(null, null, null, null, null);
+
+  private static final int EXPORT_PAGE_SIZE = 2;
+
+  private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 8, 10, 12, 0, 0, 123_000);
+
+  private TranslationHistoryRepository translationHistoryRepositoryMock;
+
+  private TranslationHistoryService translationHistoryService;
+
+  @BeforeEach
+  public void initMocks() {
+    translationHistoryRepositoryMock = mock(TranslationHistoryRepository.class);
+    translationHistoryService =
+        new TranslationHistoryService(translationHistoryRepositoryMock, EXPORT_PAGE_SIZE);
+  }
+
+  @Test
+  void testFindTranslations_moreThanLimit_returnNextCursorOfLastTranslation() {
+    final var translations =
+        List.of(
+            createTranslation(TIMESTAMP),
+            createTranslation(TIMESTAMP),
+            createTranslation(TIMESTAMP.minusSeconds(1)));
+
+    when(translationHistoryRepositoryMock.findTranslations(ANY_FILTER, null, 3))
+        .thenReturn(translations);
+
+    final var page = translationHistoryService.findTranslations(ANY_FILTER, null, 2);
+
+    Assertions.assertEquals(
+        List.of(translations.get(0).id(), translations.get(1).id()),
+        page.translations().stream().map(translation -> translation.id()).toList());
+    Assertions.assertNotNull(page.nextCursor());
+
+    translationHistoryService.findTranslations(ANY_FILTER, page.nextCursor(), 2);
+
+    verify(translationHistoryRepositoryMock)
+        .findTranslations(
+            ANY_FILTER, new TranslationCursor(TIMESTAMP, translations.get(1).id()), 3);
+  }
+
+  @Test
+  void testFindTranslations_lastPage_returnNoNextCursor() {
+    when(translationHistoryRepositoryMock.findTranslations(eq(ANY_FILTER), isNull(), eq(3)))
+        .thenReturn(List.of(createTranslation(TIMESTAMP), createTranslation(TIMESTAMP)));
+
+    final var page = translationHistoryService.findTranslations(ANY_FILTER, null, 2);
+
+    Assertions.assertEquals(2, page.translations().size());
+    Assertions.assertNull(page.nextCursor());
+  }
+
+  @Test
+  void testFindTranslations_invalidCursor_throwApplicationException() {
+    final var exception =
+        Assertions.assertThrows(
+            ApplicationException.class,
+            () -> translationHistoryService.findTranslations(ANY_FILTER, "bm90IGEgY3Vyc29y", 2));
+
+    Assertions.assertEquals(ApplicationError.INVALID_CURSOR, exception.getApplicationError());
+  }
+
+  @Test
+  void testExportTranslations_severalPages_passAllTranslationsPageByPage() {
+    final var translations =
+        List.of(
+            createTranslation(TIMESTAMP),
+            createTranslation(TIMESTAMP),
+            createTranslation(TIMESTAMP.minusSeconds(1)));
+
+    when(translationHistoryRepositoryMock.findTranslations(ANY_FILTER, null, EXPORT_PAGE_SIZE))
+        .thenReturn(translations.subList(0, 2));
+    when(translationHistoryRepositoryMock.findTranslations(
+            ANY_FILTER,
+            new TranslationCursor(TIMESTAMP, translations.get(1).id()),
+            EXPORT_PAGE_SIZE))
+        .thenReturn(translations.subList(2, 3));
+
+    final var exported = new ArrayList<UUID>();
+
+    translationHistoryService.exportTranslations(
+        ANY_FILTER, translation -> exported.add(translation.id()));
+
+    Assertions.assertEquals(translations.stream().map(Translation::id).toList(), exported);
+    verify(translationHistoryRepositoryMock, times(2))
+        .findTranslations(eq(ANY_FILTER), any(), eq(EXPORT_PAGE_SIZE));
+  }
+
+  @Test
+  void testCheckFilter_clientIp_acceptOnlyIpAddresses() {
+    for (final var clientIp : List.of("10.0.0.1", "255.255.255.255", "::1", "2001:db8::1")) {
+      translationHistoryService.checkFilter(
+          new TranslationFilter(clientIp, null, null, null, null));
+    }
+
+    for (final var clientIp : List.of("10.0.0.256", "10.0.0", "localhost", "2001:db8::g", "")) {
+      final var exception =
+          Assertions.assertThrows(
+              ApplicationException.class,
+              () ->
+                  translationHistoryService.checkFilter(
+                      new TranslationFilter(clientIp, null, null, null, null)));
+
+      Assertions.assertEquals(ApplicationError.INVALID_CLIENT_IP, exception.getApplicationError());
+    }
+  }
+
+  private static Translation createTranslation(final LocalDateTime timestamp) {
+    return new Translation(UUID.randomUUID(), "10.0.0.1", timestamp, "ru", "en", "привет", "hello");
+  }
+}
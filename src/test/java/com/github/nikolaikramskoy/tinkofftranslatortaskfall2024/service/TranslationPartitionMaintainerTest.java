@@ -0,0 +1,136 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationPartitionRepository;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class TranslationPartitionMaintainerTest {
+
+  private static final Clock CLOCK =
+      Clock.fixed(Instant.parse("2024-08-10T12:00:00Z"), ZoneOffset.UTC);
+
+  private static final LocalDate TODAY = LocalDate.of(2024, 8, 10);
+
+  private static final int TEXT_DELETE_BATCH_SIZE = 100;
+
+  private TranslationPartitionRepository translationPartitionRepositoryMock;
+
+  @BeforeEach
+  public void initMocks() {
+    translationPartitionRepositoryMock = mock(TranslationPartitionRepository.class);
+  }
+
+  @Test
+  void testMaintain_missingFuturePartitions_createThem() {
+    when(translationPartitionRepositoryMock.findPartitionDays())
+        .thenReturn(List.of(TODAY, TODAY.plusDays(1)));
+
+    createMaintainer(ExpiredPartitionAction.DROP).maintain();
+
+    verify(translationPartitionRepositoryMock, never()).createPartition(TODAY);
+    verify(translationPartitionRepositoryMock, never()).createPartition(TODAY.plusDays(1));
+    verify(translationPartitionRepositoryMock).createPartition(TODAY.plusDays(2));
+    verify(translationPartitionRepositoryMock).createPartition(TODAY.plusDays(3));
+    verify(translationPartitionRepositoryMock, never()).createPartition(TODAY.plusDays(4));
+  }
+
+  @Test
+  void testMaintain_expiredPartitions_dropOnlyThem() {
+    when(translationPartitionRepositoryMock.findPartitionDays())
+        .thenReturn(List.of(TODAY.minusDays(31), TODAY.minusDays(30), TODAY));
+
+    createMaintainer(ExpiredPartitionAction.DROP).maintain();
+
+    verify(translationPartitionRepositoryMock).dropPartition(TODAY.minusDays(31));
+    verify(translationPartitionRepositoryMock, never()).dropPartition(TODAY.minusDays(30));
+    verify(translationPartitionRepositoryMock, never()).detachPartition(any());
+    verify(translationPartitionRepositoryMock)
+        .deleteTextsUnusedSince(TODAY.minusDays(30), TEXT_DELETE_BATCH_SIZE);
+  }
+
+  @Test
+  void testMaintain_manyUnusedTexts_deleteThemInBatches() {
+    when(translationPartitionRepositoryMock.findPartitionDays())
+        .thenReturn(List.of(TODAY.minusDays(31)));
+    when(translationPartitionRepositoryMock.deleteTextsUnusedSince(
+            TODAY.minusDays(30), TEXT_DELETE_BATCH_SIZE))
+        .thenReturn(TEXT_DELETE_BATCH_SIZE, TEXT_DELETE_BATCH_SIZE, 42);
+
+    createMaintainer(ExpiredPartitionAction.DROP).maintain();
+
+    // the last batch isn't full, so there are no unused texts left
+    verify(translationPartitionRepositoryMock, times(3))
+        .deleteTextsUnusedSince(TODAY.minusDays(30), TEXT_DELETE_BATCH_SIZE);
+  }
+
+  @Test
+  void testMaintain_detachedPartitionsLeft_keepTexts() {
+    when(translationPartitionRepositoryMock.findPartitionDays())
+        .thenReturn(List.of(TODAY.minusDays(31)));
+    // archived while expired partitions were detached, still references its texts
+    when(translationPartitionRepositoryMock.findDetachedPartitionDays())
+        .thenReturn(List.of(TODAY.minusDays(60)));
+
+    createMaintainer(ExpiredPartitionAction.DROP).maintain();
+
+    verify(translationPartitionRepositoryMock).dropPartition(TODAY.minusDays(31));
+    verify(translationPartitionRepositoryMock, never()).deleteTextsUnusedSince(any(), anyInt());
+  }
+
+  @Test
+  void testMaintain_failedCreation_continueWithOtherPartitions() {
+    when(translationPartitionRepositoryMock.findPartitionDays())
+        .thenReturn(List.of(TODAY.minusDays(40)));
+    doThrow(new DataIntegrityViolationException("default partition has rows of today"))
+        .when(translationPartitionRepositoryMock)
+        .createPartition(TODAY);
+
+    createMaintainer(ExpiredPartitionAction.DETACH).maintain();
+
+    verify(translationPartitionRepositoryMock).createPartition(TODAY.plusDays(3));
+    verify(translationPartitionRepositoryMock).detachPartition(TODAY.minusDays(40));
+    verify(translationPartitionRepositoryMock, never()).dropPartition(any());
+    verify(translationPartitionRepositoryMock, never()).deleteTextsUnusedSince(any(), anyInt());
+  }
+
+  @Test
+  void testMaintain_failedDrop_dropOtherPartitionsButKeepTexts() {
+    when(translationPartitionRepositoryMock.findPartitionDays())
+        .thenReturn(List.of(TODAY.minusDays(32), TODAY.minusDays(31)));
+    doThrow(new CannotAcquireLockException("lock timeout"))
+        .when(translationPartitionRepositoryMock)
+        .dropPartition(TODAY.minusDays(32));
+
+    createMaintainer(ExpiredPartitionAction.DROP).maintain();
+
+    verify(translationPartitionRepositoryMock).dropPartition(TODAY.minusDays(31));
+    verify(translationPartitionRepositoryMock, never()).deleteTextsUnusedSince(any(), anyInt());
+  }
+
+  private TranslationPartitionMaintainer createMaintainer(
+      final ExpiredPartitionAction expiredPartitionAction) {
+    return new TranslationPartitionMaintainer(
+        CLOCK,
+        3,
+        30,
+        expiredPartitionAction,
+        TEXT_DELETE_BATCH_SIZE,
+        translationPartitionRepositoryMock);
+  }
+}
@@ -0,0 +1,66 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TranslationRequestMetersTest {
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private TranslationRequestMeters translationRequestMeters;
+
+  @BeforeEach
+  public void initMocks() {
+    meterRegistry = new SimpleMeterRegistry();
+    translationRequestMeters = new TranslationRequestMeters(meterRegistry, 2);
+  }
+
+  @Test
+  void testRecordLatency_moreLanguagePairsThanMax_tagRestAsOther() {
+    translationRequestMeters.recordLatency("text", "ru", "en", 1);
+    translationRequestMeters.recordLatency("text", "en", "ru", 1);
+    translationRequestMeters.recordLatency("text", "ru", "de", 1);
+    translationRequestMeters.recordLatency("text", "de", "ru", 1);
+    translationRequestMeters.recordLatency("text", "ru", "en", 1);
+
+    final var timers = meterRegistry.get("translator.translation.requests").timers();
+
+    Assertions.assertEquals(3, timers.size());
+    Assertions.assertEquals(
+        2,
+        meterRegistry
+            .get("translator.translation.requests")
+            .tag("language_pair", "ru-en")
+            .timer()
+            .count());
+    Assertions.assertEquals(
+        2,
+        meterRegistry
+            .get("translator.translation.requests")
+            .tag("language_pair", TranslationRequestMeters.OTHER_LANGUAGE_PAIR)
+            .timer()
+            .count());
+  }
+
+  @Test
+  void testRecordWords_differentOperations_separateMeters() {
+    translationRequestMeters.recordWords("text", "ru", "en", 3);
+    translationRequestMeters.recordWords("bulk", "ru", "en", 10);
+    translationRequestMeters.recordLatency("bulk", "ru", "en", Duration.ofMillis(5).toNanos());
+
+    final var bulkWords =
+        meterRegistry
+            .get("translator.translation.words")
+            .tag("operation", "bulk")
+            .tag("language_pair", "ru-en")
+            .summary();
+
+    Assertions.assertEquals(1, bulkWords.count());
+    Assertions.assertEquals(10, bulkWords.totalAmount());
+    Assertions.assertEquals(
+        2, meterRegistry.get("translator.translation.words").summaries().size());
+  }
+}
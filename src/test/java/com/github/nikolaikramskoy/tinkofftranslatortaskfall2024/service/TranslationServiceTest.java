@@ -3,35 +3,54 @@ package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.AvailableLanguagesCache;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.WordTranslationCache;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.cache.WordTranslationKey;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.client.YandexTranslateApiClient;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.error.ErrorDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.BulkTranslateTextDtoRequest;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.TranslateTextDtoRequest;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.request.yandextranslate.YandexTranslateTranslateDtoRequest;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.AvailableLanguageDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.BulkTranslationDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.TranslateTextDtoResponse;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateLanguageDto;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateListLanguagesResponse;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslateDtoResponse;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.dto.response.yandextranslate.YandexTranslateTranslationDto;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationError;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
 import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.YandexApiException;
-import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationRepository;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.WordTranslationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Clock;
-import java.util.Collections;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
 class TranslationServiceTest {
@@ -50,26 +69,46 @@ class TranslationServiceTest {
   private static final ExecutorService YANDEX_TRANSLATE_API_TRANSLATE_EXECUTOR_SERVICE =
       Executors.newFixedThreadPool(10);
 
+  private static final ExecutorService TRANSLATION_MEMORY_WRITER_EXECUTOR_SERVICE =
+      Executors.newSingleThreadExecutor();
+
+  private static final ExecutorService TRANSLATION_STREAM_EXECUTOR_SERVICE =
+      Executors.newCachedThreadPool();
+
   private RestTemplate restTemplateMock;
 
-  private TransactionTemplate transactionTemplateMock;
+  private TranslationWriteBehindQueue translationWriteBehindQueueMock;
+
+  private WordTranslationRepository wordTranslationRepositoryMock;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private SingleFlight<WordTranslationKey, String> wordTranslationFlights;
 
   private TranslationService translationService;
 
   @BeforeEach
   public void initMocks() throws URISyntaxException {
     restTemplateMock = mock(RestTemplate.class);
-    transactionTemplateMock = mock(TransactionTemplate.class);
+    translationWriteBehindQueueMock = mock(TranslationWriteBehindQueue.class);
+    wordTranslationRepositoryMock = mock(WordTranslationRepository.class);
+    meterRegistry = new SimpleMeterRegistry();
+    wordTranslationFlights = new SingleFlight<>();
+
+    // tests of getAvailableLanguages override this stub
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_LIST_LANGUAGES_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateListLanguagesResponse.class)))
+        .thenReturn(
+            ResponseEntity.ok(
+                new YandexTranslateListLanguagesResponse(
+                    List.of(
+                        new YandexTranslateLanguageDto("ru", "русский"),
+                        new YandexTranslateLanguageDto("en", "English")),
+                    null)));
 
-    translationService =
-        new TranslationService(
-            CLOCK,
-            YANDEX_TRANSLATE_API_TRANSLATE_EXECUTOR_SERVICE,
-            YANDEX_TRANSLATE_API_URL,
-            YANDEX_API_KEY,
-            restTemplateMock,
-            transactionTemplateMock,
-            mock(TranslationRepository.class));
+    translationService = createTranslationService(Duration.ofSeconds(5));
   }
 
   @Test
@@ -124,20 +163,313 @@ class TranslationServiceTest {
   void testTranslateText_validRequest_returnDtoResponse() {
     when(restTemplateMock.postForEntity(
             eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
-            // This was tough to mock, order of execution of Callables inside
-            // ExecutorService is arbitrary, so I can't just do consecutive thenReturn
+            // all words fit into a single batch, so they must be sent together
+            argThat(
+                httpEntity ->
+                    ((HttpEntity<YandexTranslateTranslateDtoRequest>) httpEntity)
+                        .getBody()
+                        .texts()
+                        .equals(List.of("привет", "всем"))),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenReturn(
+            ResponseEntity.ok(
+                new YandexTranslateTranslateDtoResponse(
+                    List.of(
+                        new YandexTranslateTranslationDto("hello"),
+                        new YandexTranslateTranslationDto("everyone")),
+                    null)));
+
+    final var actual =
+        translationService.translateText(
+            new TranslateTextDtoRequest("  привет   всем", "ru", "en"), "some-IP-address");
+
+    Assertions.assertNotNull(actual);
+    // separators around words are kept as is
+    Assertions.assertEquals("  hello   everyone", actual.translatedText());
+    verify(translationWriteBehindQueueMock)
+        .enqueue(
+            argThat(
+                translation ->
+                    translation.clientIp().equals("some-IP-address")
+                        && translation.text().equals("  привет   всем")
+                        && translation.translatedText().equals("  hello   everyone")));
+  }
+
+  @Test
+  void testTranslateText_cachedWords_translateOnlyMissingWords() {
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenReturn(
+            ResponseEntity.ok(
+                new YandexTranslateTranslateDtoResponse(
+                    List.of(new YandexTranslateTranslationDto("hello")), null)))
+        .thenReturn(
+            ResponseEntity.ok(
+                new YandexTranslateTranslateDtoResponse(
+                    List.of(new YandexTranslateTranslationDto("everyone")), null)));
+
+    translationService.translateText(
+        new TranslateTextDtoRequest("привет", "ru", "en"), "some-IP-address");
+
+    final var actual =
+        translationService.translateText(
+            new TranslateTextDtoRequest("привет всем", "ru", "en"), "some-IP-address");
+
+    Assertions.assertEquals("hello everyone", actual.translatedText());
+    verify(restTemplateMock)
+        .postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            argThat(
+                httpEntity ->
+                    ((HttpEntity<YandexTranslateTranslateDtoRequest>) httpEntity)
+                        .getBody()
+                        .texts()
+                        .equals(List.of("всем"))),
+            eq(YandexTranslateTranslateDtoResponse.class));
+  }
+
+  @Test
+  void testTranslateTextStream_validRequest_returnSegmentsInOrder() {
+    final var dictionary = Map.of("раз", "one", "два", "two", "три", "three");
+
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenAnswer(
+            invocation ->
+                ResponseEntity.ok(
+                    new YandexTranslateTranslateDtoResponse(
+                        invocation
+                            .<HttpEntity<YandexTranslateTranslateDtoRequest>>getArgument(1)
+                            .getBody()
+                            .texts()
+                            .stream()
+                            .map(word -> new YandexTranslateTranslationDto(dictionary.get(word)))
+                            .toList(),
+                        null)));
+
+    final List<String> actual;
+
+    try (final var segments =
+        translationService.translateTextStream(
+            new TranslateTextDtoRequest("раз два три раз два", "ru", "en"), "some-IP-address")) {
+      actual = segments.map(TranslateTextDtoResponse::translatedText).toList();
+    }
+
+    // segments are 2 words long, every segment but the first starts with a space
+    Assertions.assertEquals(List.of("one two", " three one", " two"), actual);
+    verify(translationWriteBehindQueueMock)
+        .enqueue(
+            argThat(translation -> translation.translatedText().equals("one two three one two")));
+  }
+
+  @Test
+  void testTranslateTextStream_longText_limitConcurrentUpstreamCallsPerRequest()
+      throws URISyntaxException {
+    final var inFlightCalls = new AtomicInteger();
+    final var maxInFlightCalls = new AtomicInteger();
+
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenAnswer(
+            invocation -> {
+              maxInFlightCalls.accumulateAndGet(inFlightCalls.incrementAndGet(), Math::max);
+
+              try {
+                Thread.sleep(20);
+              } finally {
+                inFlightCalls.decrementAndGet();
+              }
+
+              return ResponseEntity.ok(
+                  new YandexTranslateTranslateDtoResponse(
+                      invocation
+                          .<HttpEntity<YandexTranslateTranslateDtoRequest>>getArgument(1)
+                          .getBody()
+                          .texts()
+                          .stream()
+                          .map(YandexTranslateTranslationDto::new)
+                          .toList(),
+                      null));
+            });
+
+    // every word is a call of its own, so 2 segments in flight have 4 calls to make
+    final var translationService =
+        createTranslationService(Duration.ofSeconds(5), new TranslationBatchPlanner(1, 10000));
+    final var text =
+        IntStream.range(0, 20).mapToObj(i -> "слово" + i).collect(Collectors.joining(" "));
+    final String actual;
+
+    try (final var segments =
+        translationService.translateTextStream(
+            new TranslateTextDtoRequest(text, "ru", "en"), "some-IP-address")) {
+      actual = segments.map(TranslateTextDtoResponse::translatedText).collect(Collectors.joining());
+    }
+
+    Assertions.assertEquals(text, actual);
+    // it's the per-request limit, the global one is 10
+    Assertions.assertEquals(2, maxInFlightCalls.get());
+  }
+
+  @Test
+  void testTranslateTextStream_unavailableLanguage_throwBeforeTranslation() {
+    final var actual =
+        Assertions.assertThrows(
+            ApplicationException.class,
+            () ->
+                translationService.translateTextStream(
+                    new TranslateTextDtoRequest("привет", "ru", "xx"), "some-IP-address"));
+
+    Assertions.assertEquals(ApplicationError.UNAVAILABLE_LANGUAGE, actual.getApplicationError());
+    verify(restTemplateMock, never())
+        .postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class));
+  }
+
+  @Test
+  void testTranslateTexts_validRequest_translateAllWordsTogether() {
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            // distinct words of all texts fit into a single batch
             argThat(
                 httpEntity ->
                     ((HttpEntity<YandexTranslateTranslateDtoRequest>) httpEntity)
                         .getBody()
                         .texts()
-                        .get(0)
-                        .equals("привет")),
+                        .equals(List.of("привет", "всем", "мир"))),
             eq(YandexTranslateTranslateDtoResponse.class)))
         .thenReturn(
             ResponseEntity.ok(
                 new YandexTranslateTranslateDtoResponse(
-                    Collections.singletonList(new YandexTranslateTranslationDto("hello")), null)));
+                    List.of(
+                        new YandexTranslateTranslationDto("hello"),
+                        new YandexTranslateTranslationDto("everyone"),
+                        new YandexTranslateTranslationDto("world")),
+                    null)));
+
+    final var actual =
+        translationService.translateTexts(
+            new BulkTranslateTextDtoRequest(
+                Arrays.asList("привет всем", " ", "привет мир", null), "ru", "en"),
+            "some-IP-address");
+
+    Assertions.assertEquals(
+        List.of(
+            new BulkTranslationDto("hello everyone", null),
+            new BulkTranslationDto(null, new ErrorDto("text must not be blank")),
+            new BulkTranslationDto("hello world", null),
+            new BulkTranslationDto(null, new ErrorDto("text must not be blank"))),
+        actual.translations());
+    verify(translationWriteBehindQueueMock, times(2)).enqueue(any());
+  }
+
+  @Test
+  void testTranslateTexts_failedWord_returnErrorOnlyForItsText() {
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenAnswer(
+            invocation -> {
+              final var texts =
+                  invocation
+                      .<HttpEntity<YandexTranslateTranslateDtoRequest>>getArgument(1)
+                      .getBody()
+                      .texts();
+
+              if (texts.contains("плохо")) {
+                return ResponseEntity.badRequest()
+                    .body(new YandexTranslateTranslateDtoResponse(null, "bad word"));
+              }
+
+              return ResponseEntity.ok(
+                  new YandexTranslateTranslateDtoResponse(
+                      texts.stream().map(YandexTranslateTranslationDto::new).toList(), null));
+            });
+
+    final var actual =
+        translationService.translateTexts(
+            new BulkTranslateTextDtoRequest(List.of("хорошо", "плохо"), "ru", "en"),
+            "some-IP-address");
+
+    Assertions.assertEquals(
+        List.of(
+            new BulkTranslationDto("хорошо", null),
+            new BulkTranslationDto(null, new ErrorDto("bad word"))),
+        actual.translations());
+    verify(translationWriteBehindQueueMock).enqueue(any());
+  }
+
+  @Test
+  void testTranslateText_slowYandexApi_throwDeadlineExceeded() throws URISyntaxException {
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(10_000);
+
+              return ResponseEntity.ok(
+                  new YandexTranslateTranslateDtoResponse(
+                      List.of(new YandexTranslateTranslationDto("hello")), null));
+            });
+
+    final var translationService = createTranslationService(Duration.ofMillis(100));
+    final var actual =
+        Assertions.assertThrows(
+            ApplicationException.class,
+            () ->
+                translationService.translateText(
+                    new TranslateTextDtoRequest("привет", "ru", "en"), "some-IP-address"));
+
+    Assertions.assertEquals(ApplicationError.DEADLINE_EXCEEDED, actual.getApplicationError());
+  }
+
+  @Test
+  void testTranslateTexts_slowYandexApi_throwDeadlineExceededWithoutFallback()
+      throws URISyntaxException {
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(10_000);
+
+              return ResponseEntity.ok(
+                  new YandexTranslateTranslateDtoResponse(
+                      List.of(new YandexTranslateTranslationDto("hello")), null));
+            });
+
+    final var translationService = createTranslationService(Duration.ofMillis(100));
+    final var actual =
+        Assertions.assertThrows(
+            ApplicationException.class,
+            () ->
+                translationService.translateTexts(
+                    new BulkTranslateTextDtoRequest(List.of("привет", "мир"), "ru", "en"),
+                    "some-IP-address"));
+
+    // texts aren't translated one by one, their deadline is expired too
+    Assertions.assertEquals(ApplicationError.DEADLINE_EXCEEDED, actual.getApplicationError());
+    verify(restTemplateMock, times(1))
+        .postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class));
+    verify(translationWriteBehindQueueMock, never()).enqueue(any());
+  }
+
+  @Test
+  void testTranslateText_repeatedWords_translateEachWordOnce() {
     when(restTemplateMock.postForEntity(
             eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
             argThat(
@@ -145,23 +477,115 @@ class TranslationServiceTest {
                     ((HttpEntity<YandexTranslateTranslateDtoRequest>) httpEntity)
                         .getBody()
                         .texts()
-                        .get(0)
-                        .equals("всем")),
+                        .equals(List.of("привет", "всем"))),
             eq(YandexTranslateTranslateDtoResponse.class)))
         .thenReturn(
             ResponseEntity.ok(
                 new YandexTranslateTranslateDtoResponse(
-                    Collections.singletonList(new YandexTranslateTranslationDto("everyone")),
+                    List.of(
+                        new YandexTranslateTranslationDto("hello"),
+                        new YandexTranslateTranslationDto("everyone")),
                     null)));
 
-    doNothing().when(transactionTemplateMock).executeWithoutResult(any(Consumer.class));
+    final var actual =
+        translationService.translateText(
+            new TranslateTextDtoRequest("привет всем привет всем привет", "ru", "en"),
+            "some-IP-address");
+
+    Assertions.assertEquals("hello everyone hello everyone hello", actual.translatedText());
+    Assertions.assertEquals(
+        3, meterRegistry.get("translator.translation.duplicate.words").counter().count());
+  }
+
+  @Test
+  void testTranslateText_concurrentRequestsWithSameWords_translateOnce() throws Exception {
+    final var upstreamCallStarted = new CountDownLatch(1);
+    final var upstreamCallReleased = new CountDownLatch(1);
+
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenAnswer(
+            invocation -> {
+              upstreamCallStarted.countDown();
+              upstreamCallReleased.await();
+
+              return ResponseEntity.ok(
+                  new YandexTranslateTranslateDtoResponse(
+                      List.of(new YandexTranslateTranslationDto("hello")), null));
+            });
+
+    final var request = new TranslateTextDtoRequest("привет", "ru", "en");
+    final var first =
+        CompletableFuture.supplyAsync(
+            () -> translationService.translateText(request, "some-IP-address"));
+
+    upstreamCallStarted.await();
+
+    final var second =
+        CompletableFuture.supplyAsync(
+            () -> translationService.translateText(request, "some-IP-address"));
+
+    // otherwise the second request may miss both the cache and the flight
+    while (wordTranslationFlights.getJoinedCount() == 0) {
+      Thread.onSpinWait();
+    }
+
+    upstreamCallReleased.countDown();
+
+    Assertions.assertEquals("hello", first.get().translatedText());
+    Assertions.assertEquals("hello", second.get().translatedText());
+    verify(restTemplateMock, times(1))
+        .postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class));
+  }
+
+  @Test
+  void testTranslateText_wordsInTranslationMemory_translateOnlyMissingWords() {
+    when(wordTranslationRepositoryMock.findTranslations(
+            eq("ru"), eq("en"), eq(Set.of("привет", "всем"))))
+        .thenReturn(Map.of("привет", "hello"));
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            argThat(
+                httpEntity ->
+                    ((HttpEntity<YandexTranslateTranslateDtoRequest>) httpEntity)
+                        .getBody()
+                        .texts()
+                        .equals(List.of("всем"))),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenReturn(
+            ResponseEntity.ok(
+                new YandexTranslateTranslateDtoResponse(
+                    List.of(new YandexTranslateTranslationDto("everyone")), null)));
 
     final var actual =
         translationService.translateText(
-            new TranslateTextDtoRequest("  привет   всем", "ru", "en"), "some-IP-address");
+            new TranslateTextDtoRequest("привет всем", "ru", "en"), "some-IP-address");
 
-    Assertions.assertNotNull(actual);
     Assertions.assertEquals("hello everyone", actual.translatedText());
+    verify(wordTranslationRepositoryMock, timeout(1000))
+        .saveTranslations(eq("ru"), eq("en"), eq(Map.of("всем", "everyone")), any());
+  }
+
+  @Test
+  void testTranslateText_unavailableLanguage_throwApplicationException() {
+    final var actual =
+        Assertions.assertThrows(
+            ApplicationException.class,
+            () ->
+                translationService.translateText(
+                    new TranslateTextDtoRequest("привет", "ru", "xx"), "some-IP-address"));
+
+    Assertions.assertEquals(ApplicationError.UNAVAILABLE_LANGUAGE, actual.getApplicationError());
+    verify(restTemplateMock, never())
+        .postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class));
   }
 
   @Test
@@ -172,10 +596,6 @@ class TranslationServiceTest {
             eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
             any(HttpEntity.class),
             eq(YandexTranslateTranslateDtoResponse.class)))
-        .thenReturn(
-            ResponseEntity.ok(
-                new YandexTranslateTranslateDtoResponse(
-                    Collections.singletonList(new YandexTranslateTranslationDto("hello")), null)))
         .thenReturn(
             ResponseEntity.badRequest()
                 .body(new YandexTranslateTranslateDtoResponse(null, errorMessage)));
@@ -191,4 +611,74 @@ class TranslationServiceTest {
     Assertions.assertEquals(expected.getHttpStatusCode(), actual.getHttpStatusCode());
     Assertions.assertEquals(expected.getMessage(), actual.getMessage());
   }
+
+  @Test
+  void testTranslateText_yandexApiFailing_failFastWithoutCallingYandexApi() {
+    when(restTemplateMock.postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class)))
+        .thenReturn(
+            ResponseEntity.internalServerError()
+                .body(new YandexTranslateTranslateDtoResponse(null, "some 5xx error message")));
+
+    // different words, so every request calls Yandex Translate API
+    for (final var text : List.of("привет", "всем")) {
+      Assertions.assertThrows(
+          YandexApiException.class,
+          () ->
+              translationService.translateText(
+                  new TranslateTextDtoRequest(text, "ru", "en"), "some-IP-address"));
+    }
+
+    final var actual =
+        Assertions.assertThrows(
+            ApplicationException.class,
+            () ->
+                translationService.translateText(
+                    new TranslateTextDtoRequest("пока", "ru", "en"), "some-IP-address"));
+
+    Assertions.assertEquals(ApplicationError.UPSTREAM_UNAVAILABLE, actual.getApplicationError());
+    verify(restTemplateMock, times(2))
+        .postForEntity(
+            eq(YANDEX_TRANSLATE_API_TRANSLATE_URI),
+            any(HttpEntity.class),
+            eq(YandexTranslateTranslateDtoResponse.class));
+  }
+
+  private TranslationService createTranslationService(final Duration translationDeadline)
+      throws URISyntaxException {
+    return createTranslationService(translationDeadline, new TranslationBatchPlanner(100, 10000));
+  }
+
+  private TranslationService createTranslationService(
+      final Duration translationDeadline, final TranslationBatchPlanner translationBatchPlanner)
+      throws URISyntaxException {
+    final var yandexTranslateApiClient =
+        new YandexTranslateApiClient(YANDEX_TRANSLATE_API_URL, YANDEX_API_KEY, restTemplateMock);
+
+    return new TranslationService(
+        CLOCK,
+        new UuidV7Generator(CLOCK),
+        YANDEX_TRANSLATE_API_TRANSLATE_EXECUTOR_SERVICE,
+        new UpstreamConcurrencyLimiter(1, 10, 10, 2, Duration.ofSeconds(1), 0.9),
+        new UpstreamHedger(
+            false, Duration.ZERO, YANDEX_TRANSLATE_API_TRANSLATE_EXECUTOR_SERVICE, meterRegistry),
+        new UpstreamCircuitBreaker(CLOCK, 4, 2, 0.5, Duration.ofMinutes(1), 1),
+        new UpstreamQuotaLimiter(1000, 100000, Duration.ZERO, meterRegistry),
+        translationDeadline,
+        yandexTranslateApiClient,
+        new AvailableLanguagesCache(yandexTranslateApiClient),
+        translationWriteBehindQueueMock,
+        translationBatchPlanner,
+        new WordTranslationCache(10000, Duration.ofMinutes(1)),
+        wordTranslationFlights,
+        wordTranslationRepositoryMock,
+        TRANSLATION_MEMORY_WRITER_EXECUTOR_SERVICE,
+        TRANSLATION_STREAM_EXECUTOR_SERVICE,
+        2,
+        2,
+        new TranslationRequestMeters(meterRegistry, 10),
+        meterRegistry);
+  }
 }
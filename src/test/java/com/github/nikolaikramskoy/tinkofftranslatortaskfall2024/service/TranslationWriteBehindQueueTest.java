@@ -0,0 +1,154 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.model.Translation;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.repository.TranslationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class TranslationWriteBehindQueueTest {
+
+  private TransactionTemplate transactionTemplateMock;
+
+  private TranslationRepository translationRepositoryMock;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  public void initMocks() {
+    transactionTemplateMock = mock(TransactionTemplate.class);
+    translationRepositoryMock = mock(TranslationRepository.class);
+    meterRegistry = new SimpleMeterRegistry();
+
+    when(transactionTemplateMock.execute(any()))
+        .thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    when(translationRepositoryMock.saveTranslations(any()))
+        .thenAnswer(invocation -> saveAll(invocation.getArgument(0)));
+  }
+
+  @Test
+  void testClose_enqueuedTranslations_saveAllInBatches() throws InterruptedException {
+    final var queue = createQueue(100, Duration.ofMinutes(1));
+
+    for (var i = 0; i < 5; ++i) {
+      Assertions.assertTrue(queue.enqueue(createTranslation()));
+    }
+
+    queue.close();
+
+    verify(translationRepositoryMock).saveTranslations(argThat(batch -> batch.size() == 5));
+    Assertions.assertEquals(5, recordsCount("written"));
+  }
+
+  @Test
+  void testClose_duringSlowFlush_saveAllTranslations() throws InterruptedException {
+    final var flushStarted = new CountDownLatch(1);
+
+    doAnswer(
+            invocation -> {
+              flushStarted.countDown();
+
+              try {
+                Thread.sleep(200);
+              } catch (final InterruptedException e) {
+                throw new IllegalStateException("flush is interrupted", e);
+              }
+
+              return saveAll(invocation.getArgument(0));
+            })
+        .when(translationRepositoryMock)
+        .saveTranslations(any());
+
+    final var queue = createQueue(2, Duration.ofMinutes(1));
+
+    queue.enqueue(createTranslation());
+    queue.enqueue(createTranslation());
+    flushStarted.await();
+
+    for (var i = 0; i < 3; ++i) {
+      queue.enqueue(createTranslation());
+    }
+
+    queue.close();
+
+    Assertions.assertEquals(5, recordsCount("written"));
+    Assertions.assertEquals(0, recordsCount("failed"));
+  }
+
+  @Test
+  void testClose_existingTranslation_skipWithoutRetry() throws InterruptedException {
+    doReturn(new int[] {1, 0}).when(translationRepositoryMock).saveTranslations(any());
+
+    final var queue = createQueue(100, Duration.ofMinutes(1));
+
+    queue.enqueue(createTranslation());
+    queue.enqueue(createTranslation());
+    queue.close();
+
+    verify(translationRepositoryMock).saveTranslations(any());
+    Assertions.assertEquals(1, recordsCount("written"));
+    Assertions.assertEquals(1, recordsCount("skipped"));
+  }
+
+  @Test
+  void testEnqueue_closedQueue_dropTranslation() throws InterruptedException {
+    final var queue = createQueue(100, Duration.ofMillis(10));
+
+    queue.close();
+
+    Assertions.assertFalse(queue.enqueue(createTranslation()));
+    Assertions.assertEquals(1, recordsCount("dropped"));
+  }
+
+  private TranslationWriteBehindQueue createQueue(
+      final int flushSize, final Duration flushInterval) {
+    return new TranslationWriteBehindQueue(
+        10,
+        flushSize,
+        flushInterval,
+        Duration.ZERO,
+        Duration.ofSeconds(5),
+        transactionTemplateMock,
+        translationRepositoryMock,
+        meterRegistry);
+  }
+
+  private double recordsCount(final String result) {
+    return meterRegistry
+        .get("translator.translation.writer.records")
+        .tag("result", result)
+        .counter()
+        .count();
+  }
+
+  private static int[] saveAll(final List<Translation> translations) {
+    final var outcomes = new int[translations.size()];
+
+    Arrays.fill(outcomes, 1);
+
+    return outcomes;
+  }
+
+  private static Translation createTranslation() {
+    return new Translation(
+        UUID.randomUUID(), "127.0.0.1", LocalDateTime.now(), "ru", "en", "привет", "hello");
+  }
+}
@@ -0,0 +1,104 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationError;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.YandexApiException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+
+class UpstreamCircuitBreakerTest {
+
+  private static final Instant NOW = Instant.parse("2024-08-01T12:00:00Z");
+
+  private Clock clockMock;
+
+  private UpstreamCircuitBreaker circuitBreaker;
+
+  @BeforeEach
+  public void initMocks() {
+    clockMock = mock(Clock.class);
+    when(clockMock.millis()).thenReturn(NOW.toEpochMilli());
+
+    circuitBreaker = new UpstreamCircuitBreaker(clockMock, 4, 2, 0.5, Duration.ofSeconds(10), 2);
+  }
+
+  @Test
+  void testCall_failureRateReached_failFast() throws Exception {
+    succeed();
+    fail(new YandexApiException(HttpStatus.SERVICE_UNAVAILABLE, "unavailable"));
+
+    Assertions.assertEquals(UpstreamCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+    final var actual =
+        Assertions.assertThrows(
+            ApplicationException.class,
+            () ->
+                circuitBreaker.call(
+                    () -> {
+                      throw new AssertionError("Yandex Translate API must not be called");
+                    }));
+
+    Assertions.assertEquals(ApplicationError.UPSTREAM_UNAVAILABLE, actual.getApplicationError());
+  }
+
+  @Test
+  void testCall_clientErrors_stayClosed() throws Exception {
+    for (var i = 0; i < 4; ++i) {
+      fail(new YandexApiException(HttpStatus.BAD_REQUEST, "bad request"));
+    }
+
+    Assertions.assertEquals(UpstreamCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  void testCall_openDurationPassedAndTrialCallsSucceed_close() throws Exception {
+    fail(new ResourceAccessException("connection refused"));
+    fail(new ResourceAccessException("connection refused"));
+
+    when(clockMock.millis()).thenReturn(NOW.plusSeconds(10).toEpochMilli());
+
+    succeed();
+
+    Assertions.assertEquals(UpstreamCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+    succeed();
+
+    Assertions.assertEquals(UpstreamCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    Assertions.assertEquals(0, circuitBreaker.getFailureRate());
+  }
+
+  @Test
+  void testCall_openDurationPassedAndTrialCallFails_openAgain() throws Exception {
+    fail(new YandexApiException(HttpStatus.TOO_MANY_REQUESTS, "too many requests"));
+    fail(new YandexApiException(HttpStatus.TOO_MANY_REQUESTS, "too many requests"));
+
+    when(clockMock.millis()).thenReturn(NOW.plusSeconds(10).toEpochMilli());
+
+    fail(new YandexApiException(HttpStatus.TOO_MANY_REQUESTS, "too many requests"));
+
+    Assertions.assertEquals(UpstreamCircuitBreaker.State.OPEN, circuitBreaker.getState());
+  }
+
+  private void succeed() throws Exception {
+    Assertions.assertEquals("hello", circuitBreaker.call(() -> "hello"));
+  }
+
+  private void fail(final Exception e) {
+    Assertions.assertThrows(
+        e.getClass(),
+        () ->
+            circuitBreaker.call(
+                () -> {
+                  throw e;
+                }));
+  }
+}
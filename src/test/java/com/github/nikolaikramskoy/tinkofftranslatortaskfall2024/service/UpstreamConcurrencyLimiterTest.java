@@ -0,0 +1,128 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.YandexApiException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+class UpstreamConcurrencyLimiterTest {
+
+  @Test
+  void testCall_fastCallUsingLimit_increaseLimit() throws Exception {
+    final var limiter = new UpstreamConcurrencyLimiter(1, 1, 8, 2, Duration.ofSeconds(10), 0.75);
+
+    limiter.call(() -> "hello", Deadline.after(Duration.ofSeconds(1)));
+
+    Assertions.assertEquals(2, limiter.getLimit());
+    Assertions.assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  void testCall_fastCallsUsingLessThanHalfOfLimit_keepLimit() throws Exception {
+    final var limiter = createLimiter(Duration.ofSeconds(10));
+
+    for (var i = 0; i < 10; ++i) {
+      limiter.call(() -> "hello", Deadline.after(Duration.ofSeconds(1)));
+    }
+
+    Assertions.assertEquals(4, limiter.getLimit());
+  }
+
+  @Test
+  void testCall_upstreamFailures_decreaseLimitDownToMin() throws Exception {
+    final var limiter = createLimiter(Duration.ofSeconds(10));
+
+    for (var i = 0; i < 10; ++i) {
+      Assertions.assertThrows(
+          YandexApiException.class,
+          () ->
+              limiter.call(
+                  () -> {
+                    throw new YandexApiException(HttpStatus.SERVICE_UNAVAILABLE, "unavailable");
+                  },
+                  Deadline.after(Duration.ofSeconds(1))));
+    }
+
+    Assertions.assertEquals(2, limiter.getLimit());
+  }
+
+  @Test
+  void testCall_clientErrors_keepLimit() throws Exception {
+    final var limiter = createLimiter(Duration.ofSeconds(10));
+
+    for (var i = 0; i < 10; ++i) {
+      Assertions.assertThrows(
+          YandexApiException.class,
+          () ->
+              limiter.call(
+                  () -> {
+                    throw new YandexApiException(HttpStatus.BAD_REQUEST, "bad request");
+                  },
+                  Deadline.after(Duration.ofSeconds(1))));
+    }
+
+    Assertions.assertEquals(4, limiter.getLimit());
+  }
+
+  @Test
+  void testCall_slowCall_decreaseLimit() throws Exception {
+    final var limiter = createLimiter(Duration.ZERO);
+
+    limiter.call(
+        () -> {
+          Thread.sleep(10);
+
+          return "hello";
+        },
+        Deadline.after(Duration.ofSeconds(1)));
+
+    Assertions.assertEquals(3, limiter.getLimit());
+  }
+
+  @Test
+  void testCall_limitReached_waitUntilDeadline() throws Exception {
+    final var limiter = createLimiter(Duration.ofSeconds(10));
+    final var upstreamCallsStarted = new CountDownLatch(4);
+    final var upstreamCallsReleased = new CountDownLatch(1);
+    final var calls = new CompletableFuture<?>[4];
+
+    for (var i = 0; i < calls.length; ++i) {
+      calls[i] =
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  return limiter.call(
+                      () -> {
+                        upstreamCallsStarted.countDown();
+                        upstreamCallsReleased.await();
+
+                        return "hello";
+                      },
+                      Deadline.after(Duration.ofSeconds(10)));
+                } catch (final Exception e) {
+                  throw new RuntimeException(e);
+                }
+              });
+    }
+
+    upstreamCallsStarted.await();
+
+    Assertions.assertEquals(0, limiter.getAvailableGlobalPermits());
+    Assertions.assertThrows(
+        TimeoutException.class,
+        () -> limiter.call(() -> "hello", Deadline.after(Duration.ofMillis(50))));
+
+    upstreamCallsReleased.countDown();
+    CompletableFuture.allOf(calls).join();
+
+    Assertions.assertEquals(0, limiter.getInFlight());
+  }
+
+  private static UpstreamConcurrencyLimiter createLimiter(final Duration latencyThreshold) {
+    return new UpstreamConcurrencyLimiter(2, 4, 8, 2, latencyThreshold, 0.75);
+  }
+}
@@ -0,0 +1,150 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UpstreamHedgerTest {
+
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  public void initMeterRegistry() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void testCall_slowPrimary_returnHedgeResult() throws Exception {
+    final var hedger = createHedger(true, Duration.ofMillis(10));
+    final var attempts = new AtomicInteger();
+    final var primaryReleased = new CountDownLatch(1);
+
+    final var actual =
+        hedger.call(
+            () -> {
+              if (attempts.incrementAndGet() == 1) {
+                // primary attempt hangs until it's cancelled
+                primaryReleased.await();
+
+                return "primary";
+              }
+
+              return "hedge";
+            },
+            Callable::call,
+            Deadline.after(Duration.ofSeconds(5)));
+
+    Assertions.assertEquals("hedge", actual);
+    Assertions.assertEquals(2, attempts.get());
+    Assertions.assertEquals(
+        1, meterRegistry.get("translator.yandex.translate.api.hedges.won").counter().count());
+  }
+
+  @Test
+  void testCall_failedHedge_returnPrimaryResult() throws Exception {
+    final var hedger = createHedger(true, Duration.ofMillis(10));
+    final var attempts = new AtomicInteger();
+
+    final var actual =
+        hedger.call(
+            () -> {
+              if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(200);
+
+                return "primary";
+              }
+
+              throw new IllegalStateException("hedge failed");
+            },
+            Callable::call,
+            Deadline.after(Duration.ofSeconds(5)));
+
+    Assertions.assertEquals("primary", actual);
+  }
+
+  @Test
+  void testCall_primaryWaitsForQuota_noHedge() throws Exception {
+    final var hedger = createHedger(true, Duration.ofMillis(10));
+    final var quotaLimiter =
+        new UpstreamQuotaLimiter(1000, 10, Duration.ofSeconds(1), meterRegistry);
+    final var deadline = Deadline.after(Duration.ofSeconds(5));
+    final var attempts = new AtomicInteger();
+
+    // the bucket of characters is empty now, so 3 more characters wait for 300 ms
+    quotaLimiter.call(() -> null, 10, deadline);
+
+    final var actual =
+        hedger.call(
+            () -> {
+              attempts.incrementAndGet();
+
+              return "primary";
+            },
+            sendCall -> quotaLimiter.call(sendCall, 3, deadline),
+            deadline);
+
+    Assertions.assertEquals("primary", actual);
+    Assertions.assertEquals(1, attempts.get());
+    Assertions.assertEquals(
+        0, meterRegistry.get("translator.yandex.translate.api.hedges").counter().count());
+    // latency of the call doesn't include waiting for quota
+    Assertions.assertTrue(
+        meterRegistry
+                .get("translator.yandex.translate.api.calls")
+                .timer()
+                .max(TimeUnit.MILLISECONDS)
+            < 200);
+  }
+
+  @Test
+  void testCall_disabled_callOnce() throws Exception {
+    final var hedger = createHedger(false, Duration.ZERO);
+    final var attempts = new AtomicInteger();
+
+    final var actual =
+        hedger.call(
+            () -> {
+              attempts.incrementAndGet();
+              Thread.sleep(50);
+
+              return "primary";
+            },
+            Callable::call,
+            Deadline.after(Duration.ofSeconds(5)));
+
+    Assertions.assertEquals("primary", actual);
+    Assertions.assertEquals(1, attempts.get());
+    Assertions.assertEquals(
+        0, meterRegistry.get("translator.yandex.translate.api.hedges").counter().count());
+  }
+
+  @Test
+  void testCall_deadlineExpires_throwTimeoutException() {
+    final var hedger = createHedger(true, Duration.ofMillis(10));
+
+    Assertions.assertThrows(
+        TimeoutException.class,
+        () ->
+            hedger.call(
+                () -> {
+                  Thread.sleep(10_000);
+
+                  return "too late";
+                },
+                Callable::call,
+                Deadline.after(Duration.ofMillis(100))));
+  }
+
+  private UpstreamHedger createHedger(final boolean enabled, final Duration minDelay) {
+    return new UpstreamHedger(
+        enabled, minDelay, Executors.newVirtualThreadPerTaskExecutor(), meterRegistry);
+  }
+}
@@ -0,0 +1,134 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationError;
+import com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.error.ApplicationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UpstreamQuotaLimiterTest {
+
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  public void initMocks() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void testCall_requestQuotaExhausted_throwApplicationException() throws Exception {
+    final var limiter = new UpstreamQuotaLimiter(2, 1000, Duration.ZERO, meterRegistry);
+
+    limiter.call(() -> "hello", 1, Deadline.after(Duration.ofSeconds(1)));
+    limiter.call(() -> "hello", 1, Deadline.after(Duration.ofSeconds(1)));
+
+    assertQuotaExhausted(limiter, 1, Deadline.after(Duration.ofSeconds(1)));
+  }
+
+  @Test
+  void testCall_characterQuotaExhausted_throwApplicationException() throws Exception {
+    final var limiter = new UpstreamQuotaLimiter(1000, 10, Duration.ZERO, meterRegistry);
+
+    limiter.call(() -> "hello", 8, Deadline.after(Duration.ofSeconds(1)));
+
+    assertQuotaExhausted(limiter, 5, Deadline.after(Duration.ofSeconds(1)));
+
+    // rejected call didn't reserve anything
+    Assertions.assertEquals(
+        "hello", limiter.call(() -> "hello", 1, Deadline.after(Duration.ofSeconds(1))));
+  }
+
+  @Test
+  void testCall_quotaExhaustedAndWaitAllowed_waitForQuota() throws Exception {
+    final var limiter = new UpstreamQuotaLimiter(20, 1000, Duration.ofSeconds(1), meterRegistry);
+
+    for (var i = 0; i < 20; ++i) {
+      limiter.call(() -> "hello", 1, Deadline.after(Duration.ofSeconds(1)));
+    }
+
+    final var start = System.nanoTime();
+
+    limiter.call(() -> "hello", 1, Deadline.after(Duration.ofSeconds(1)));
+
+    // 1 / 20 requests per second
+    Assertions.assertTrue(System.nanoTime() - start >= Duration.ofMillis(40).toNanos());
+  }
+
+  @Test
+  void testCall_waitLongerThanDeadline_throwApplicationException() throws Exception {
+    final var limiter = new UpstreamQuotaLimiter(1, 1000, Duration.ofSeconds(10), meterRegistry);
+
+    limiter.call(() -> "hello", 1, Deadline.after(Duration.ofSeconds(1)));
+
+    assertQuotaExhausted(limiter, 1, Deadline.after(Duration.ofMillis(100)));
+  }
+
+  @Test
+  void testCall_interruptedWhileWaiting_returnReservedQuota() throws Exception {
+    final var limiter = new UpstreamQuotaLimiter(1000, 10, Duration.ofSeconds(10), meterRegistry);
+    final var failure = new AtomicReference<Exception>();
+    final var interrupted = new AtomicBoolean();
+
+    limiter.call(() -> "hello", 10, Deadline.after(Duration.ofSeconds(1)));
+
+    // waits for 1 s to repay 10 characters it reserves
+    final var waitingCall =
+        new Thread(
+            () -> {
+              try {
+                limiter.call(
+                    () -> {
+                      throw new AssertionError("Yandex Translate API must not be called");
+                    },
+                    10,
+                    Deadline.after(Duration.ofSeconds(5)));
+              } catch (final Exception e) {
+                failure.set(e);
+                interrupted.set(Thread.currentThread().isInterrupted());
+              }
+            });
+
+    waitingCall.start();
+
+    while (waitingCall.getState() != Thread.State.TIMED_WAITING) {
+      Thread.onSpinWait();
+    }
+
+    waitingCall.interrupt();
+    waitingCall.join();
+
+    Assertions.assertInstanceOf(InterruptedException.class, failure.get());
+    Assertions.assertTrue(interrupted.get());
+
+    // 5 characters wait for 0.5 s, it'd be 1.5 s if the interrupted call kept its reservation
+    Assertions.assertEquals(
+        "hello", limiter.call(() -> "hello", 5, Deadline.after(Duration.ofMillis(800))));
+  }
+
+  private void assertQuotaExhausted(
+      final UpstreamQuotaLimiter limiter, final int callCharacters, final Deadline deadline) {
+    final var rejections =
+        meterRegistry.counter("translator.yandex.translate.api.quota.rejections").count();
+
+    final var actual =
+        Assertions.assertThrows(
+            ApplicationException.class,
+            () ->
+                limiter.call(
+                    () -> {
+                      throw new AssertionError("Yandex Translate API must not be called");
+                    },
+                    callCharacters,
+                    deadline));
+
+    Assertions.assertEquals(
+        ApplicationError.UPSTREAM_QUOTA_EXHAUSTED, actual.getApplicationError());
+    Assertions.assertEquals(
+        rejections + 1,
+        meterRegistry.counter("translator.yandex.translate.api.quota.rejections").count());
+  }
+}
@@ -0,0 +1,67 @@
+package com.github.nikolaikramskoy.tinkofftranslatortaskfall2024.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class UuidV7GeneratorTest {
+
+  private static final Instant NOW = Instant.parse("2024-08-01T12:00:00Z");
+
+  @Test
+  void testGenerate_versionAndTimestamp() {
+    final var generator = new UuidV7Generator(Clock.fixed(NOW, ZoneOffset.UTC));
+
+    final var uuid = generator.generate();
+
+    Assertions.assertEquals(7, uuid.version());
+    Assertions.assertEquals(2, uuid.variant());
+    Assertions.assertEquals(NOW.toEpochMilli(), uuid.getMostSignificantBits() >>> 16);
+  }
+
+  @Test
+  void testGenerate_sameMillisecond_strictlyIncreasing() {
+    final var generator = new UuidV7Generator(Clock.fixed(NOW, ZoneOffset.UTC));
+
+    var previous = generator.generate();
+
+    // more UUIDs than the counter holds, so timestamp overflows too
+    for (var i = 0; i < 10_000; ++i) {
+      final var next = generator.generate();
+
+      Assertions.assertTrue(compareUnsigned(previous, next) < 0);
+
+      previous = next;
+    }
+  }
+
+  @Test
+  void testGenerate_clockGoesBackwards_strictlyIncreasing() {
+    final var clockMock = mock(Clock.class);
+    when(clockMock.millis()).thenReturn(NOW.toEpochMilli(), NOW.minusSeconds(1).toEpochMilli());
+
+    final var generator = new UuidV7Generator(clockMock);
+
+    final var first = generator.generate();
+    final var second = generator.generate();
+
+    Assertions.assertTrue(compareUnsigned(first, second) < 0);
+    Assertions.assertEquals(NOW.toEpochMilli(), second.getMostSignificantBits() >>> 16);
+  }
+
+  // PostgreSQL compares uuid as unsigned bytes, unlike UUID.compareTo()
+  private static int compareUnsigned(final UUID left, final UUID right) {
+    final var mostSigBits =
+        Long.compareUnsigned(left.getMostSignificantBits(), right.getMostSignificantBits());
+
+    return mostSigBits != 0
+        ? mostSigBits
+        : Long.compareUnsigned(left.getLeastSignificantBits(), right.getLeastSignificantBits());
+  }
+}